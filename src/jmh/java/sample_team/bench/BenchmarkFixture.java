@@ -0,0 +1,180 @@
+package sample_team.bench;
+
+import adf.core.agent.develop.DevelopData;
+import adf.core.agent.info.AgentInfo;
+import adf.core.agent.info.ScenarioInfo;
+import adf.core.agent.info.WorldInfo;
+import adf.core.agent.module.ModuleManager;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import rescuecore2.config.Config;
+import rescuecore2.standard.entities.Human;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * The agent-side context a module needs (AgentInfo, WorldInfo, ScenarioInfo,
+ * DevelopData and ModuleManager), built without a kernel connection. Pair it
+ * with {@link SyntheticWorldGenerator} to drive the real modules offline.
+ */
+public final class BenchmarkFixture {
+
+  private final WorldInfo worldInfo;
+  private final AgentInfo agentInfo;
+  private final ScenarioInfo scenarioInfo;
+  private final DevelopData developData;
+  private final ModuleManager moduleManager;
+
+  private BenchmarkFixture(WorldInfo worldInfo, AgentInfo agentInfo,
+      ScenarioInfo scenarioInfo, DevelopData developData) {
+    this.worldInfo = worldInfo;
+    this.agentInfo = agentInfo;
+    this.scenarioInfo = scenarioInfo;
+    this.developData = developData;
+    this.moduleManager = new ModuleManager(agentInfo, worldInfo, scenarioInfo,
+        new Config(), developData);
+  }
+
+
+  /**
+   * Creates the context of the first agent of type {@code agentType} in
+   * {@code model}.
+   *
+   * @param develop develop data values overriding the module defaults
+   */
+  public static BenchmarkFixture create(StandardWorldModel model,
+      StandardEntityURN agentType, Map<String, Object> develop) {
+    model.index();
+    WorldInfo worldInfo = new WorldInfo(model);
+    StandardEntity me = null;
+    for (StandardEntity entity : model.getEntitiesOfType(agentType)) {
+      if (me == null || entity.getID().getValue() < me.getID().getValue()) {
+        me = entity;
+      }
+    }
+    if (me == null) {
+      throw new IllegalArgumentException("no " + agentType + " in the world");
+    }
+
+    Config config = new Config();
+    config.setIntValue("scenario.agents.fb",
+        model.getEntitiesOfType(StandardEntityURN.FIRE_BRIGADE).size());
+    config.setIntValue("scenario.agents.pf",
+        model.getEntitiesOfType(StandardEntityURN.POLICE_FORCE).size());
+    config.setIntValue("scenario.agents.at",
+        model.getEntitiesOfType(StandardEntityURN.AMBULANCE_TEAM).size());
+    config.setIntValue("scenario.agents.fs", 0);
+    config.setIntValue("scenario.agents.po", 0);
+    config.setIntValue("scenario.agents.ac", 0);
+    config.setBooleanValue("adf.debug.flag", false);
+    ScenarioInfo scenarioInfo = new ScenarioInfo(config,
+        ScenarioInfo.Mode.NON_PRECOMPUTE);
+
+    return new BenchmarkFixture(worldInfo, new FixedAgentInfo(me, model),
+        scenarioInfo, new FixedDevelopData(develop));
+  }
+
+
+  public WorldInfo getWorldInfo() {
+    return this.worldInfo;
+  }
+
+
+  public AgentInfo getAgentInfo() {
+    return this.agentInfo;
+  }
+
+
+  public ScenarioInfo getScenarioInfo() {
+    return this.scenarioInfo;
+  }
+
+
+  public DevelopData getDevelopData() {
+    return this.developData;
+  }
+
+
+  public ModuleManager getModuleManager() {
+    return this.moduleManager;
+  }
+
+
+  private static final class FixedAgentInfo extends AgentInfo {
+
+    private final StandardEntity me;
+
+    FixedAgentInfo(StandardEntity me, StandardWorldModel model) {
+      super(null, model);
+      this.me = me;
+    }
+
+
+    @Override
+    public EntityID getID() {
+      return this.me.getID();
+    }
+
+
+    @Override
+    public StandardEntity me() {
+      return this.me;
+    }
+
+
+    @Override
+    public EntityID getPosition() {
+      return this.me instanceof Human ? ((Human) this.me).getPosition()
+          : this.me.getID();
+    }
+
+
+    @Override
+    public int getTime() {
+      return 0;
+    }
+  }
+
+  private static final class FixedDevelopData extends DevelopData {
+
+    private final Map<String, Object> values;
+
+    FixedDevelopData(Map<String, Object> values) {
+      super(false, "", Collections.emptyList());
+      this.values = new HashMap<>(values);
+    }
+
+
+    @Override
+    public Integer getInteger(String name, int defaultValue) {
+      Object value = this.values.get(name);
+      return value instanceof Number ? ((Number) value).intValue()
+          : defaultValue;
+    }
+
+
+    @Override
+    public Double getDouble(String name, double defaultValue) {
+      Object value = this.values.get(name);
+      return value instanceof Number ? ((Number) value).doubleValue()
+          : defaultValue;
+    }
+
+
+    @Override
+    public Boolean getBoolean(String name, boolean defaultValue) {
+      Object value = this.values.get(name);
+      return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+
+    @Override
+    public String getString(String name, String defaultValue) {
+      Object value = this.values.get(name);
+      return value != null ? value.toString() : defaultValue;
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package sample_team.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import rescuecore2.standard.entities.AmbulanceTeam;
+import rescuecore2.standard.entities.Area;
+import rescuecore2.standard.entities.Building;
+import rescuecore2.standard.entities.Civilian;
+import rescuecore2.standard.entities.Edge;
+import rescuecore2.standard.entities.FireBrigade;
+import rescuecore2.standard.entities.Human;
+import rescuecore2.standard.entities.Hydrant;
+import rescuecore2.standard.entities.PoliceForce;
+import rescuecore2.standard.entities.Refuge;
+import rescuecore2.standard.entities.Road;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Generates in-memory city maps for benchmarks and load tests.
+ * <p>
+ * The map is a square lattice of cells: cells on an even row or column are
+ * streets ({@link Road}, some of them {@link Hydrant}s), the others are city
+ * blocks ({@link Building}, some of them {@link Refuge}s). Adjacent cells
+ * share an edge with identical end points; street-to-street edges are always
+ * passable, and every building has one passable edge towards a street next to
+ * it. Platoon agents start on streets and civilians mostly inside buildings.
+ * The same seed and settings always produce the same world.
+ */
+public final class SyntheticWorldGenerator {
+
+  private static final int CELL = 10000;
+
+  private final long seed;
+  private int areas = 1000;
+  private int agentsPerType = 10;
+  private int civilians = 100;
+  private double refugeRatio = 0.01D;
+  private double hydrantRatio = 0.02D;
+  private double burningRatio = 0.0D;
+
+  public SyntheticWorldGenerator(long seed) {
+    this.seed = seed;
+  }
+
+
+  /**
+   * The approximate number of areas; the lattice is the smallest square with
+   * at least this many cells.
+   */
+  public SyntheticWorldGenerator areas(int areas) {
+    this.areas = areas;
+    return this;
+  }
+
+
+  public SyntheticWorldGenerator agentsPerType(int agentsPerType) {
+    this.agentsPerType = agentsPerType;
+    return this;
+  }
+
+
+  public SyntheticWorldGenerator civilians(int civilians) {
+    this.civilians = civilians;
+    return this;
+  }
+
+
+  public SyntheticWorldGenerator refugeRatio(double refugeRatio) {
+    this.refugeRatio = refugeRatio;
+    return this;
+  }
+
+
+  public SyntheticWorldGenerator hydrantRatio(double hydrantRatio) {
+    this.hydrantRatio = hydrantRatio;
+    return this;
+  }
+
+
+  /**
+   * The share of buildings that are already burning, with a random fieryness
+   * between 1 and 3.
+   */
+  public SyntheticWorldGenerator burningRatio(double burningRatio) {
+    this.burningRatio = burningRatio;
+    return this;
+  }
+
+
+  public StandardWorldModel generate() {
+    Random random = new Random(this.seed);
+    // an odd side keeps streets on all four borders
+    int side = Math.max(3, (int) Math.ceil(Math.sqrt(this.areas)));
+    if (side % 2 == 0) {
+      side++;
+    }
+    Area[] cells = new Area[side * side];
+    List<Area> streets = new ArrayList<>();
+    List<Building> buildings = new ArrayList<>();
+    int id = 1;
+    for (int r = 0; r < side; r++) {
+      for (int c = 0; c < side; c++) {
+        EntityID entityID = new EntityID(id++);
+        Area area;
+        if (r % 2 == 0 || c % 2 == 0) {
+          area = random.nextDouble() < this.hydrantRatio ? new Hydrant(entityID)
+              : new Road(entityID);
+          streets.add(area);
+        } else {
+          Building building = random.nextDouble() < this.refugeRatio
+              ? new Refuge(entityID)
+              : new Building(entityID);
+          this.initBuilding(building, random);
+          buildings.add(building);
+          area = building;
+        }
+        area.setX(c * CELL + CELL / 2);
+        area.setY(r * CELL + CELL / 2);
+        area.setBlockades(Collections.emptyList());
+        cells[r * side + c] = area;
+      }
+    }
+
+    // every building opens towards one of its (street) neighbours
+    int[] entrance = new int[cells.length];
+    for (int r = 1; r < side; r += 2) {
+      for (int c = 1; c < side; c += 2) {
+        entrance[r * side + c] = random.nextInt(4);
+      }
+    }
+    for (int r = 0; r < side; r++) {
+      for (int c = 0; c < side; c++) {
+        cells[r * side + c].setEdges(this.createEdges(cells, entrance, side, r,
+            c));
+      }
+    }
+
+    StandardWorldModel model = new StandardWorldModel();
+    for (Area area : cells) {
+      model.addEntity(area);
+    }
+    for (int i = 0; i < this.agentsPerType * 3; i++) {
+      EntityID entityID = new EntityID(id++);
+      Human human;
+      switch (i % 3) {
+        case 0:
+          FireBrigade fireBrigade = new FireBrigade(entityID);
+          fireBrigade.setWater(15000);
+          human = fireBrigade;
+          break;
+        case 1:
+          human = new PoliceForce(entityID);
+          break;
+        default:
+          human = new AmbulanceTeam(entityID);
+          break;
+      }
+      this.place(human, streets.get(random.nextInt(streets.size())));
+      human.setHP(10000);
+      human.setDamage(0);
+      human.setBuriedness(0);
+      human.setStamina(10000);
+      model.addEntity(human);
+    }
+    for (int i = 0; i < this.civilians; i++) {
+      Civilian civilian = new Civilian(new EntityID(id++));
+      Area position = buildings.isEmpty() || random.nextInt(5) == 0
+          ? streets.get(random.nextInt(streets.size()))
+          : buildings.get(random.nextInt(buildings.size()));
+      this.place(civilian, position);
+      civilian.setHP(1000 + random.nextInt(9001));
+      civilian.setDamage(random.nextInt(100));
+      civilian.setBuriedness(position instanceof Building
+          ? random.nextInt(60)
+          : 0);
+      civilian.setStamina(10000);
+      model.addEntity(civilian);
+    }
+    return model;
+  }
+
+
+  private void initBuilding(Building building, Random random) {
+    int floors = 1 + random.nextInt(5);
+    int ground = CELL / 1000 * (CELL / 1000);
+    building.setFloors(floors);
+    building.setGroundArea(ground);
+    building.setTotalArea(ground * floors);
+    building.setBuildingCode(random.nextInt(3));
+    building.setImportance(1);
+    building.setBrokenness(0);
+    boolean burning = random.nextDouble() < this.burningRatio;
+    building.setFieryness(burning ? 1 + random.nextInt(3) : 0);
+    building.setTemperature(burning ? 100 + random.nextInt(500) : 0);
+  }
+
+
+  // sides in the order north, east, south, west
+  private List<Edge> createEdges(Area[] cells, int[] entrance, int side, int r,
+      int c) {
+    int x0 = c * CELL;
+    int y0 = r * CELL;
+    int x1 = x0 + CELL;
+    int y1 = y0 + CELL;
+    List<Edge> edges = new ArrayList<>(4);
+    edges.add(new Edge(x0, y0, x1, y0,
+        this.link(cells, entrance, side, r, c, r - 1, c, 0)));
+    edges.add(new Edge(x1, y0, x1, y1,
+        this.link(cells, entrance, side, r, c, r, c + 1, 1)));
+    edges.add(new Edge(x1, y1, x0, y1,
+        this.link(cells, entrance, side, r, c, r + 1, c, 2)));
+    edges.add(new Edge(x0, y1, x0, y0,
+        this.link(cells, entrance, side, r, c, r, c - 1, 3)));
+    return edges;
+  }
+
+
+  private EntityID link(Area[] cells, int[] entrance, int side, int r, int c,
+      int nr, int nc, int direction) {
+    if (nr < 0 || nc < 0 || nr >= side || nc >= side) {
+      return null;
+    }
+    Area self = cells[r * side + c];
+    Area other = cells[nr * side + nc];
+    if (self instanceof Building) {
+      return entrance[r * side + c] == direction ? other.getID() : null;
+    }
+    if (other instanceof Building) {
+      // the building's entrance points back at this cell
+      return entrance[nr * side + nc] == (direction + 2) % 4 ? other.getID()
+          : null;
+    }
+    return other.getID();
+  }
+
+
+  private void place(Human human, Area position) {
+    human.setPosition(position.getID());
+    human.setX(position.getX());
+    human.setY(position.getY());
+  }
+}
@@ -0,0 +1,139 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.precompute.PrecomputeData;
+import adf.core.component.module.algorithm.Clustering;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.EntityID;
+import sample_team.bench.BenchmarkFixture;
+import sample_team.bench.SyntheticWorldGenerator;
+
+/**
+ * Compares the three clustering modules on synthetic maps. Run with
+ * {@code ./gradlew jmh -Pjmh.includes=ClusteringBenchmark}; the gc profiler
+ * adds the allocation rate to every result. Larger maps can be selected
+ * with {@code -Pjmh.args="-p areas=100000"}.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2048m" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClusteringBenchmark {
+
+  @Param({ "KMeansClustering", "HashKMeansClustering",
+      "EuclideanKMeansClustering" })
+  public String implementation;
+
+  @Param({ "1000", "10000" })
+  public int areas;
+
+  @Param({ "20" })
+  public int agentsPerType;
+
+  private BenchmarkFixture fixture;
+  private Clustering prepared;
+  private EntityID[] queries;
+  private int nextQuery;
+  private int nextCluster;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Map<String, Object> develop = new HashMap<>();
+    // every invocation must do the work instead of reusing a shared result
+    develop.put("adf.impl.module.algorithm.KMeansClustering.sharedResult",
+        false);
+    develop.put("sample_team.module.algorithm.KMeansClustering.sharedResult",
+        false);
+    StandardWorldModel world = new SyntheticWorldGenerator(1L)
+        .areas(this.areas).agentsPerType(this.agentsPerType)
+        .civilians(this.areas / 20).generate();
+    this.fixture = BenchmarkFixture.create(world,
+        StandardEntityURN.FIRE_BRIGADE, develop);
+
+    this.prepared = this.newClustering();
+    this.prepared.preparate();
+    List<EntityID> ids = new ArrayList<>();
+    for (StandardEntity entity : this.fixture.getWorldInfo()) {
+      ids.add(entity.getID());
+    }
+    this.queries = ids.toArray(new EntityID[0]);
+  }
+
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Clustering precompute() {
+    return this.newClustering().precompute(new PrecomputeData("benchmark"));
+  }
+
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Clustering preparate() {
+    return this.newClustering().preparate();
+  }
+
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int getClusterIndex() {
+    EntityID id = this.queries[this.nextQuery];
+    this.nextQuery = this.nextQuery + 1 == this.queries.length ? 0
+        : this.nextQuery + 1;
+    return this.prepared.getClusterIndex(id);
+  }
+
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void getClusterEntities(Blackhole blackhole) {
+    int index = this.nextCluster;
+    this.nextCluster = this.nextCluster + 1 >= this.prepared.getClusterNumber()
+        ? 0
+        : this.nextCluster + 1;
+    blackhole.consume(this.prepared.getClusterEntities(index));
+  }
+
+
+  private Clustering newClustering() {
+    switch (this.implementation) {
+      case "KMeansClustering":
+        return new KMeansClustering(this.fixture.getAgentInfo(),
+            this.fixture.getWorldInfo(), this.fixture.getScenarioInfo(),
+            this.fixture.getModuleManager(), this.fixture.getDevelopData());
+      case "HashKMeansClustering":
+        return new HashKMeansClustering(this.fixture.getAgentInfo(),
+            this.fixture.getWorldInfo(), this.fixture.getScenarioInfo(),
+            this.fixture.getModuleManager(), this.fixture.getDevelopData());
+      case "EuclideanKMeansClustering":
+        return new EuclideanKMeansClustering(this.fixture.getAgentInfo(),
+            this.fixture.getWorldInfo(), this.fixture.getScenarioInfo(),
+            this.fixture.getModuleManager(), this.fixture.getDevelopData());
+      default:
+        throw new IllegalArgumentException(this.implementation);
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.communication.MessageManager;
+import adf.core.agent.develop.DevelopData;
+import adf.core.agent.info.AgentInfo;
+import adf.core.agent.info.ScenarioInfo;
+import adf.core.agent.info.WorldInfo;
+import adf.core.agent.module.ModuleManager;
+import adf.core.agent.precompute.PrecomputeData;
+import adf.core.component.module.algorithm.PathPlanning;
+import adf.core.debug.DefaultLogger;
+import java.util.Collection;
+import java.util.List;
+import org.apache.log4j.Logger;
+import rescuecore2.standard.entities.Road;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * PathPlanning that runs A* with {@link Landmarks} lower bounds, so a query
+ * only expands the areas roughly between the start and the goals instead of
+ * everything closer than the goal.
+ * <p>
+ * The landmark tables are built during precompute and stored with the
+ * precompute data; agents without them build the tables once per map at
+ * startup. Edges cost the distance between area centres, like the default
+ * DijkstraPathPlanning. With a positive
+ * {@code sample_team.module.algorithm.ALTPathPlanning.blockadePenalty}
+ * entering a road that has blockades costs that much more; penalties only
+ * make paths longer, so the bounds stay valid.
+ * <p>
+ * Both {@code getDistance} methods report the length between area centres
+ * of the path this module would plan, without penalties, like
+ * DijkstraPathPlanning; penalties only choose the path.
+ * {@link Double#MAX_VALUE} means there is no path.
+ */
+public class ALTPathPlanning extends PathPlanning {
+
+  private static final String KEY_PREFIX = "sample_team.module.algorithm.ALTPathPlanning";
+
+  private EntityID from;
+  private Collection<EntityID> targets;
+  private List<EntityID> result;
+  private double resultDistance;
+
+  private int landmarkCount;
+  private double blockadePenalty;
+
+  private AreaGraph graph;
+  private Landmarks landmarks;
+  private AStarSearch search;
+  private double[] penalties;
+
+  private Logger logger;
+
+  public ALTPathPlanning(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
+    super(ai, wi, si, moduleManager, developData);
+    this.logger = DefaultLogger.getLogger(agentInfo.me());
+    this.landmarkCount = developData.getInteger(KEY_PREFIX + ".landmarks", 16);
+    this.blockadePenalty = developData.getDouble(KEY_PREFIX + ".blockadePenalty",
+        0.0D);
+  }
+
+
+  @Override
+  public PathPlanning precompute(PrecomputeData precomputeData) {
+    super.precompute(precomputeData);
+    if (this.getCountPrecompute() >= 2) {
+      return this;
+    }
+    this.graph = AreaGraph.of(this.worldInfo);
+    this.landmarks = Landmarks.of(this.graph, this.landmarkCount);
+    this.landmarks.write(precomputeData, KEY_PREFIX);
+    this.init();
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning resume(PrecomputeData precomputeData) {
+    super.resume(precomputeData);
+    if (this.getCountResume() >= 2) {
+      return this;
+    }
+    this.graph = AreaGraph.of(this.worldInfo);
+    this.landmarks = Landmarks.read(precomputeData, KEY_PREFIX, this.graph);
+    if (this.landmarks == null) {
+      logger.warn("no landmark tables for this map, building them");
+    }
+    this.init();
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning preparate() {
+    super.preparate();
+    if (this.getCountPreparate() >= 2) {
+      return this;
+    }
+    this.init();
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning updateInfo(MessageManager messageManager) {
+    super.updateInfo(messageManager);
+    if (this.getCountUpdateInfo() >= 2) {
+      return this;
+    }
+    if (this.blockadePenalty > 0.0D) {
+      this.init();
+      for (EntityID id : this.worldInfo.getChanged().getChangedEntities()) {
+        this.updatePenalty(id);
+      }
+    }
+    return this;
+  }
+
+
+  @Override
+  public List<EntityID> getResult() {
+    return this.result;
+  }
+
+
+  @Override
+  public PathPlanning setFrom(EntityID id) {
+    this.from = id;
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning setDestination(Collection<EntityID> targets) {
+    this.targets = targets;
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning calc() {
+    this.result = null;
+    this.resultDistance = 0.0D;
+    this.init();
+    int start = this.graph.indexOf(this.from);
+    if (start < 0 || this.targets == null) {
+      return this;
+    }
+    int[] goals = new int[this.targets.size()];
+    int count = 0;
+    for (EntityID target : this.targets) {
+      int node = this.graph.indexOf(target);
+      if (node >= 0) {
+        goals[count++] = node;
+      }
+    }
+
+    long expanded = this.search.getExpandedCount();
+    int goal = this.search.search(start, goals, count);
+    this.result = this.search.getPath(goal);
+    this.resultDistance = this.pathDistance(this.result);
+    logger.debug("expanded " + (this.search.getExpandedCount() - expanded)
+        + " nodes, path: " + this.result);
+    return this;
+  }
+
+
+  @Override
+  public double getDistance() {
+    return this.resultDistance;
+  }
+
+
+  @Override
+  public double getDistance(EntityID from, EntityID dest) {
+    this.init();
+    int source = this.graph.indexOf(from);
+    int goal = this.graph.indexOf(dest);
+    if (source < 0 || goal < 0) {
+      return Double.MAX_VALUE;
+    }
+    if (this.search.search(source, new int[] { goal }, 1) < 0) {
+      return Double.MAX_VALUE;
+    }
+    // with penalties the cost of the path is more than its length
+    return this.penalties != null
+        ? this.pathDistance(this.search.getPath(goal))
+        : this.search.getDistance(goal);
+  }
+
+
+  private void init() {
+    if (this.search != null) {
+      return;
+    }
+    if (this.graph == null) {
+      this.graph = AreaGraph.of(this.worldInfo);
+    }
+    if (this.landmarks == null) {
+      this.landmarks = Landmarks.of(this.graph, this.landmarkCount);
+    }
+    this.search = new AStarSearch(this.landmarks);
+    if (this.blockadePenalty > 0.0D) {
+      this.penalties = new double[this.graph.size()];
+      this.search.setNodePenalties(this.penalties);
+      for (StandardEntity entity : this.worldInfo.getEntitiesOfType(
+          StandardEntityURN.ROAD, StandardEntityURN.HYDRANT)) {
+        this.updatePenalty(entity.getID());
+      }
+    }
+  }
+
+
+  private void updatePenalty(EntityID id) {
+    StandardEntity entity = this.worldInfo.getEntity(id);
+    if (!(entity instanceof Road)) {
+      return;
+    }
+    int node = this.graph.indexOf(id);
+    if (node >= 0) {
+      Road road = (Road) entity;
+      boolean blocked = road.isBlockadesDefined()
+          && !road.getBlockades().isEmpty();
+      this.penalties[node] = blocked ? this.blockadePenalty : 0.0D;
+    }
+  }
+
+
+  // the length of the path between area centres, without penalties
+  private double pathDistance(List<EntityID> path) {
+    if (path == null) {
+      return 0.0D;
+    }
+    double distance = 0.0D;
+    for (int i = 1; i < path.size(); i++) {
+      distance += this.graph.getLineDistance(
+          this.graph.indexOf(path.get(i - 1)), this.graph.indexOf(path.get(i)));
+    }
+    return distance;
+  }
+}
@@ -0,0 +1,235 @@
+package sample_team.module.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Goal-directed A* over an {@link AreaGraph} with {@link Landmarks} lower
+ * bounds.
+ * <p>
+ * The rounded landmark bounds are admissible but not always consistent, so
+ * a node is reopened when a shorter path to it turns up; the result is
+ * still a shortest path. Work arrays are reused between queries like in
+ * {@link GraphSearch}. An instance is not thread-safe.
+ */
+public final class AStarSearch {
+
+  private final AreaGraph graph;
+  private final Landmarks landmarks;
+
+  private final int[] visited;
+  private final int[] goal;
+  private final int[] parent;
+  private final double[] distance;
+  private final double[] estimate;
+  private int stamp;
+
+  // binary heap ordered by distance + estimate
+  private final int[] heap;
+  private final int[] heapPosition;
+  private int heapSize;
+
+  private double[] penalties;
+  // with a single goal the line distance to it is a bound as well
+  private int singleGoal;
+  private long expanded;
+
+  public AStarSearch(Landmarks landmarks) {
+    this.graph = landmarks.getGraph();
+    this.landmarks = landmarks;
+    int n = this.graph.size();
+    this.visited = new int[n];
+    this.goal = new int[n];
+    this.parent = new int[n];
+    this.distance = new double[n];
+    this.estimate = new double[n];
+    this.heap = new int[Math.max(1, n)];
+    this.heapPosition = new int[n];
+  }
+
+
+  /**
+   * Extra cost of entering a node, as in
+   * {@link GraphSearch#setNodePenalties(double[])}.
+   */
+  public void setNodePenalties(double[] penalties) {
+    this.penalties = penalties;
+  }
+
+
+  /**
+   * Shortest path from {@code source} to the nearest of the
+   * {@code goalCount} nodes in {@code goals}.
+   *
+   * @return the goal that was reached, or -1
+   */
+  public int search(int source, int[] goals, int goalCount) {
+    if (++this.stamp == Integer.MAX_VALUE) {
+      Arrays.fill(this.visited, 0);
+      Arrays.fill(this.goal, 0);
+      this.stamp = 1;
+    }
+    for (int i = 0; i < goalCount; i++) {
+      this.goal[goals[i]] = this.stamp;
+    }
+    if (goalCount == 0) {
+      return -1;
+    }
+    Landmarks.Bound bound = this.landmarks.bound(goals, goalCount);
+    this.singleGoal = goalCount == 1 ? goals[0] : -1;
+    this.heapSize = 0;
+    this.visit(source, source, 0.0D, bound);
+    this.push(source);
+    while (this.heapSize > 0) {
+      int node = this.pop();
+      if (this.goal[node] == this.stamp) {
+        return node;
+      }
+      this.expanded++;
+      double base = this.distance[node];
+      int first = this.graph.getFirstEdge(node);
+      int last = first + this.graph.getDegree(node);
+      for (int e = first; e < last; e++) {
+        int next = this.graph.getTarget(e);
+        double d = base + this.graph.getWeight(e);
+        if (this.penalties != null) {
+          d += this.penalties[next];
+        }
+        if (this.visited[next] != this.stamp) {
+          this.visit(next, node, d, bound);
+          this.push(next);
+        } else if (d < this.distance[next]) {
+          this.distance[next] = d;
+          this.parent[next] = node;
+          if (this.heapPosition[next] >= 0) {
+            this.siftUp(this.heapPosition[next]);
+          } else {
+            this.push(next);
+          }
+        }
+      }
+    }
+    return -1;
+  }
+
+
+  /**
+   * Cost from the source to {@code node} found by the last search, or
+   * {@link Double#MAX_VALUE} if it was not reached.
+   */
+  public double getDistance(int node) {
+    return this.visited[node] == this.stamp ? this.distance[node]
+        : Double.MAX_VALUE;
+  }
+
+
+  /**
+   * The path from the source to {@code target} of the last search, both
+   * ends included, or null if {@code target} was not reached.
+   */
+  public List<EntityID> getPath(int target) {
+    if (target < 0 || this.visited[target] != this.stamp) {
+      return null;
+    }
+    List<EntityID> path = new ArrayList<>();
+    for (int node = target;; node = this.parent[node]) {
+      path.add(this.graph.getID(node));
+      if (this.parent[node] == node) {
+        break;
+      }
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+
+  /**
+   * The number of node expansions since this instance was created.
+   */
+  public long getExpandedCount() {
+    return this.expanded;
+  }
+
+
+  private void visit(int node, int from, double d, Landmarks.Bound bound) {
+    this.visited[node] = this.stamp;
+    this.parent[node] = from;
+    this.distance[node] = d;
+    double h = bound.estimate(node);
+    if (this.singleGoal >= 0) {
+      h = Math.max(h, this.graph.getLineDistance(node, this.singleGoal));
+    }
+    this.estimate[node] = h;
+    this.heapPosition[node] = -1;
+  }
+
+
+  private double priority(int node) {
+    return this.distance[node] + this.estimate[node];
+  }
+
+
+  private void push(int node) {
+    int i = this.heapSize++;
+    this.heap[i] = node;
+    this.heapPosition[node] = i;
+    this.siftUp(i);
+  }
+
+
+  private int pop() {
+    int top = this.heap[0];
+    this.heapPosition[top] = -1;
+    int last = this.heap[--this.heapSize];
+    if (this.heapSize > 0) {
+      this.heap[0] = last;
+      this.heapPosition[last] = 0;
+      this.siftDown(0);
+    }
+    return top;
+  }
+
+
+  private void siftUp(int i) {
+    int node = this.heap[i];
+    double f = this.priority(node);
+    while (i > 0) {
+      int p = (i - 1) >>> 1;
+      int up = this.heap[p];
+      if (this.priority(up) <= f) {
+        break;
+      }
+      this.heap[i] = up;
+      this.heapPosition[up] = i;
+      i = p;
+    }
+    this.heap[i] = node;
+    this.heapPosition[node] = i;
+  }
+
+
+  private void siftDown(int i) {
+    int node = this.heap[i];
+    double f = this.priority(node);
+    int half = this.heapSize >>> 1;
+    while (i < half) {
+      int c = 2 * i + 1;
+      if (c + 1 < this.heapSize
+          && this.priority(this.heap[c + 1]) < this.priority(this.heap[c])) {
+        c++;
+      }
+      int child = this.heap[c];
+      if (f <= this.priority(child)) {
+        break;
+      }
+      this.heap[i] = child;
+      this.heapPosition[child] = i;
+      i = c;
+    }
+    this.heap[i] = node;
+    this.heapPosition[node] = i;
+  }
+}
@@ -0,0 +1,265 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.info.WorldInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import rescuecore2.standard.entities.Area;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Immutable road/building adjacency graph in compressed sparse row form.
+ * <p>
+ * Every {@link Area} of the map gets a dense index (ordered by entity ID, so
+ * the numbering is identical for every agent on the same map). The neighbours
+ * of node {@code i} are {@code getTarget(e)} for
+ * {@code getFirstEdge(i) <= e < getFirstEdge(i + 1)}, and each edge is weighted
+ * with the straight-line distance between the two area centres. The graph is
+ * made symmetric the same way the old {@code initShortestPath} did.
+ * <p>
+ * The graph holds no search state; use a {@link GraphSearch} per thread to run
+ * queries on it.
+ */
+public final class AreaGraph {
+
+  private static final Map<WorldInfo, AreaGraph> GRAPHS = new WeakHashMap<>();
+
+  private final EntityIndex index;
+  private final int[] x;
+  private final int[] y;
+  private final int[] offsets;
+  private final int[] targets;
+  private final double[] weights;
+  private final long fingerprint;
+
+  private AreaGraph(EntityIndex index, int[] x, int[] y, int[] offsets,
+      int[] targets, double[] weights) {
+    this.index = index;
+    this.x = x;
+    this.y = y;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.fingerprint = this.computeFingerprint();
+  }
+
+
+  /**
+   * Returns the graph of the world, building it on first use. Modules of the
+   * same agent share one instance.
+   */
+  public static AreaGraph of(WorldInfo worldInfo) {
+    synchronized (GRAPHS) {
+      AreaGraph graph = GRAPHS.get(worldInfo);
+      if (graph == null) {
+        graph = build(worldInfo);
+        GRAPHS.put(worldInfo, graph);
+      }
+      return graph;
+    }
+  }
+
+
+  public static AreaGraph build(WorldInfo worldInfo) {
+    List<Area> areas = new ArrayList<>();
+    for (StandardEntity entity : worldInfo) {
+      if (entity instanceof Area) {
+        areas.add((Area) entity);
+      }
+    }
+    areas.sort((a, b) -> Integer.compare(a.getID().getValue(),
+        b.getID().getValue()));
+
+    int n = areas.size();
+    EntityID[] ids = new EntityID[n];
+    int[] x = new int[n];
+    int[] y = new int[n];
+    EntityIndex index = new EntityIndex(n);
+    for (int i = 0; i < n; i++) {
+      Area area = areas.get(i);
+      ids[i] = area.getID();
+      index.add(ids[i]);
+      x[i] = area.getX();
+      y[i] = area.getY();
+    }
+    int[] from = new int[16];
+    int[] to = new int[16];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      for (EntityID neighbour : areas.get(i).getNeighbours()) {
+        if (count == from.length) {
+          from = Arrays.copyOf(from, from.length * 2);
+          to = Arrays.copyOf(to, to.length * 2);
+        }
+        from[count] = i;
+        to[count++] = index.indexOf(neighbour);
+      }
+    }
+    return build(ids, x, y, Arrays.copyOf(from, count),
+        Arrays.copyOf(to, count));
+  }
+
+
+  /**
+   * Builds the graph of the areas {@code ids} (in ascending ID order) centred
+   * at {@code x}, {@code y}, with a link between {@code from[e]} and
+   * {@code to[e]} for every {@code e}. Links are made symmetric; duplicates,
+   * self-loops and negative ends are dropped.
+   */
+  static AreaGraph build(EntityID[] ids, int[] x, int[] y, int[] from,
+      int[] to) {
+    int n = ids.length;
+    EntityIndex index = new EntityIndex(n);
+    for (EntityID id : ids) {
+      index.add(id);
+    }
+
+    // collect directed edges in both directions
+    int[] sources = new int[2 * from.length];
+    int[] destinations = new int[2 * from.length];
+    int count = 0;
+    for (int e = 0; e < from.length; e++) {
+      int i = from[e];
+      int j = to[e];
+      if (i < 0 || j < 0 || i == j) {
+        continue;
+      }
+      sources[count] = i;
+      destinations[count++] = j;
+      sources[count] = j;
+      destinations[count++] = i;
+    }
+
+    // bucket by source node, then sort and deduplicate every row
+    int[] offsets = new int[n + 1];
+    for (int e = 0; e < count; e++) {
+      offsets[sources[e] + 1]++;
+    }
+    for (int i = 0; i < n; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] fill = Arrays.copyOf(offsets, n);
+    int[] buckets = new int[count];
+    for (int e = 0; e < count; e++) {
+      buckets[fill[sources[e]]++] = destinations[e];
+    }
+    int[] compactOffsets = new int[n + 1];
+    int size = 0;
+    for (int i = 0; i < n; i++) {
+      Arrays.sort(buckets, offsets[i], offsets[i + 1]);
+      compactOffsets[i] = size;
+      for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+        if (e == offsets[i] || buckets[e] != buckets[e - 1]) {
+          buckets[size++] = buckets[e];
+        }
+      }
+    }
+    compactOffsets[n] = size;
+
+    int[] targets = Arrays.copyOf(buckets, size);
+    double[] weights = new double[size];
+    for (int i = 0; i < n; i++) {
+      for (int e = compactOffsets[i]; e < compactOffsets[i + 1]; e++) {
+        int j = targets[e];
+        weights[e] = Math.hypot((double) x[i] - x[j], (double) y[i] - y[j]);
+      }
+    }
+    return new AreaGraph(index, x, y, compactOffsets, targets, weights);
+  }
+
+
+  /**
+   * Hash of the area IDs, positions and links. Agents that loaded the same map
+   * get the same value.
+   */
+  public long getFingerprint() {
+    return this.fingerprint;
+  }
+
+
+  private long computeFingerprint() {
+    long hash = this.x.length;
+    for (int i = 0; i < this.x.length; i++) {
+      hash = 31 * hash + this.index.get(i).getValue();
+      hash = 31 * hash + this.x[i];
+      hash = 31 * hash + this.y[i];
+      hash = 31 * hash + this.offsets[i + 1];
+    }
+    for (int target : this.targets) {
+      hash = 31 * hash + target;
+    }
+    return hash;
+  }
+
+
+  /**
+   * The number of nodes (areas).
+   */
+  public int size() {
+    return this.x.length;
+  }
+
+
+  /**
+   * The number of directed edges; every undirected link is counted twice.
+   */
+  public int getEdgeCount() {
+    return this.targets.length;
+  }
+
+
+  /**
+   * Returns the node of {@code id}, or -1 if it is not an area of the map.
+   */
+  public int indexOf(EntityID id) {
+    return this.index.indexOf(id);
+  }
+
+
+  public EntityID getID(int node) {
+    return this.index.get(node);
+  }
+
+
+  public int getX(int node) {
+    return this.x[node];
+  }
+
+
+  public int getY(int node) {
+    return this.y[node];
+  }
+
+
+  public int getFirstEdge(int node) {
+    return this.offsets[node];
+  }
+
+
+  public int getDegree(int node) {
+    return this.offsets[node + 1] - this.offsets[node];
+  }
+
+
+  public int getTarget(int edge) {
+    return this.targets[edge];
+  }
+
+
+  public double getWeight(int edge) {
+    return this.weights[edge];
+  }
+
+
+  /**
+   * Straight-line distance between two node centres; a lower bound of the
+   * weighted path distance.
+   */
+  public double getLineDistance(int from, int to) {
+    return Math.hypot((double) this.x[from] - this.x[to],
+        (double) this.y[from] - this.y[to]);
+  }
+}
@@ -0,0 +1,135 @@
+package sample_team.module.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Minimum-cost assignment of agents to clusters with balanced cluster sizes.
+ * <p>
+ * With {@code n} agents and {@code k} clusters every cluster receives
+ * {@code n / k} or {@code n / k + 1} agents, the same split the old
+ * round-robin assignment produced, and the total cost is minimal among all
+ * such splits. Each cluster is expanded into {@code ceil(n / k)} slots; the
+ * slots of the last layer carry a penalty larger than any total cost, so the
+ * optimum fills the first {@code n / k} layers completely. The expanded
+ * problem has {@code n} rows and fewer than {@code n + k} slot columns, and
+ * the Hungarian algorithm solves it in {@code O(n^2 (n + k))}, that is
+ * {@code O(n^3)} when there are no more clusters than agents.
+ */
+public final class BalancedAssignment {
+
+  private BalancedAssignment() {
+  }
+
+
+  /**
+   * @param cost {@code cost[agent][cluster]}; {@link Double#MAX_VALUE} or
+   *             infinity marks an unreachable pair, which is only chosen when
+   *             nothing else fits
+   * @return the cluster of every agent
+   */
+  public static int[] solve(double[][] cost, int clusterCount) {
+    int n = cost.length;
+    int k = clusterCount;
+    if (n == 0 || k == 0) {
+      int[] empty = new int[n];
+      Arrays.fill(empty, -1);
+      return empty;
+    }
+
+    double maxCost = 0.0D;
+    for (double[] row : cost) {
+      for (int c = 0; c < k; c++) {
+        if (row[c] < Double.MAX_VALUE) {
+          maxCost = Math.max(maxCost, row[c]);
+        }
+      }
+    }
+    // one unreachable pair costs more than all reachable pairs together
+    double unreachable = n * maxCost + 1.0D;
+    double penalty = (unreachable + 1.0D) * n;
+
+    int fullLayers = n / k;
+    int layers = (n + k - 1) / k;
+    int m = k * layers;
+    double[][] slots = new double[n][m];
+    for (int a = 0; a < n; a++) {
+      for (int j = 0; j < m; j++) {
+        double c = cost[a][j % k];
+        slots[a][j] = (c < Double.MAX_VALUE ? c : unreachable)
+            + (j / k >= fullLayers ? penalty : 0.0D);
+      }
+    }
+    int[] columns = hungarian(slots);
+    int[] clusters = new int[n];
+    for (int a = 0; a < n; a++) {
+      clusters[a] = columns[a] % k;
+    }
+    return clusters;
+  }
+
+
+  /**
+   * Hungarian algorithm with potentials for an {@code n x m} matrix,
+   * {@code n <= m}.
+   *
+   * @return the column assigned to every row
+   */
+  static int[] hungarian(double[][] a) {
+    int n = a.length;
+    int m = a[0].length;
+    // 1-based arrays; column 0 is the virtual start column
+    double[] u = new double[n + 1];
+    double[] v = new double[m + 1];
+    int[] rowOf = new int[m + 1];
+    int[] way = new int[m + 1];
+    double[] minv = new double[m + 1];
+    boolean[] used = new boolean[m + 1];
+    for (int i = 1; i <= n; i++) {
+      rowOf[0] = i;
+      int j0 = 0;
+      Arrays.fill(minv, Double.POSITIVE_INFINITY);
+      Arrays.fill(used, false);
+      do {
+        used[j0] = true;
+        int i0 = rowOf[j0];
+        double delta = Double.POSITIVE_INFINITY;
+        int j1 = 0;
+        for (int j = 1; j <= m; j++) {
+          if (used[j]) {
+            continue;
+          }
+          double cur = a[i0 - 1][j - 1] - u[i0] - v[j];
+          if (cur < minv[j]) {
+            minv[j] = cur;
+            way[j] = j0;
+          }
+          if (minv[j] < delta) {
+            delta = minv[j];
+            j1 = j;
+          }
+        }
+        for (int j = 0; j <= m; j++) {
+          if (used[j]) {
+            u[rowOf[j]] += delta;
+            v[j] -= delta;
+          } else {
+            minv[j] -= delta;
+          }
+        }
+        j0 = j1;
+      } while (rowOf[j0] != 0);
+      do {
+        int j1 = way[j0];
+        rowOf[j0] = rowOf[j1];
+        j0 = j1;
+      } while (j0 != 0);
+    }
+    int[] columns = new int[n];
+    for (int j = 1; j <= m; j++) {
+      if (rowOf[j] != 0) {
+        columns[rowOf[j] - 1] = j - 1;
+      }
+    }
+    return columns;
+  }
+}
@@ -0,0 +1,90 @@
+package sample_team.module.algorithm;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Immutable entity-to-cluster lookup of a clustering result.
+ * <p>
+ * When the entity IDs are reasonably dense (the usual case for simulator
+ * maps) the cluster of an entity is one read of an int array indexed by
+ * {@code id - minId}; otherwise the IDs go through an {@link EntityIndex}
+ * first. An entity listed in several clusters maps to the lowest index, like
+ * a linear scan over the clusters would.
+ */
+public final class ClusterIndex {
+
+  // larger spans fall back to the hashed index
+  private static final int MAX_SPAN_FACTOR = 8;
+
+  private final int minId;
+  private final int[] clusters;
+  private final EntityIndex index;
+
+  private ClusterIndex(int minId, int[] clusters, EntityIndex index) {
+    this.minId = minId;
+    this.clusters = clusters;
+    this.index = index;
+  }
+
+
+  public static ClusterIndex build(
+      List<? extends Collection<EntityID>> clusterEntityIDs) {
+    int count = 0;
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (Collection<EntityID> ids : clusterEntityIDs) {
+      if (ids == null) {
+        continue;
+      }
+      for (EntityID id : ids) {
+        min = Math.min(min, id.getValue());
+        max = Math.max(max, id.getValue());
+        count++;
+      }
+    }
+    if (count == 0) {
+      return new ClusterIndex(0, new int[0], null);
+    }
+
+    long span = (long) max - min + 1;
+    EntityIndex index = null;
+    int[] clusters;
+    if (span <= (long) count * MAX_SPAN_FACTOR + 1024) {
+      clusters = new int[(int) span];
+    } else {
+      index = new EntityIndex(count);
+      clusters = new int[count];
+      min = 0;
+    }
+    Arrays.fill(clusters, -1);
+    for (int cluster = 0; cluster < clusterEntityIDs.size(); cluster++) {
+      Collection<EntityID> ids = clusterEntityIDs.get(cluster);
+      if (ids == null) {
+        continue;
+      }
+      for (EntityID id : ids) {
+        int slot = index != null ? index.add(id) : id.getValue() - min;
+        if (clusters[slot] < 0) {
+          clusters[slot] = cluster;
+        }
+      }
+    }
+    return new ClusterIndex(min, clusters, index);
+  }
+
+
+  /**
+   * Returns the cluster of {@code id}, or -1 if it belongs to none.
+   */
+  public int getClusterIndex(EntityID id) {
+    int slot = this.index != null ? this.index.indexOf(id)
+        : id.getValue() - this.minId;
+    if (slot < 0 || slot >= this.clusters.length) {
+      return -1;
+    }
+    return this.clusters[slot];
+  }
+}
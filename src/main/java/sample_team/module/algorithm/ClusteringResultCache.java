@@ -0,0 +1,123 @@
+package sample_team.module.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Process-wide cache of clustering results.
+ * <p>
+ * When every agent runs in one JVM, all agents of a type compute the same
+ * partition in {@code preparate()} (the seeding is deterministic). The first
+ * agent to ask for a key computes the result; agents asking concurrently wait
+ * for it, and later ones get the same immutable instance. A computation that
+ * throws is forgotten, so the next agent retries it.
+ */
+public final class ClusteringResultCache {
+
+  private static final Map<String, FutureTask<Result>> RESULTS = new ConcurrentHashMap<>();
+
+  private ClusteringResultCache() {
+  }
+
+
+  /**
+   * Builds a cache key. {@code params} must contain every setting that changes
+   * the result of the computation.
+   */
+  public static String key(Class<?> type, AreaGraph graph, Object... params) {
+    StringBuilder key = new StringBuilder(type.getName());
+    key.append('@').append(Long.toHexString(graph.getFingerprint()));
+    for (Object param : params) {
+      key.append('/').append(param);
+    }
+    return key.toString();
+  }
+
+
+  /**
+   * Returns the result stored under {@code key}, computing it with
+   * {@code compute} if no agent did so yet.
+   */
+  public static Result get(String key, Supplier<Result> compute) {
+    FutureTask<Result> task = new FutureTask<>(compute::get);
+    FutureTask<Result> existing = RESULTS.putIfAbsent(key, task);
+    if (existing == null) {
+      existing = task;
+      task.run();
+    }
+    try {
+      return existing.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for " + key, e);
+    } catch (ExecutionException e) {
+      RESULTS.remove(key, existing);
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+
+  public static void clear() {
+    RESULTS.clear();
+  }
+
+
+  /**
+   * Immutable clustering result: the centers, the members of every cluster and
+   * the lookup index over them.
+   */
+  public static final class Result {
+
+    private final List<EntityID> centerIDs;
+    private final List<List<EntityID>> clusterEntityIDs;
+    private final ClusterIndex clusterIndex;
+
+    private Result(List<EntityID> centerIDs,
+        List<List<EntityID>> clusterEntityIDs) {
+      this.centerIDs = centerIDs;
+      this.clusterEntityIDs = clusterEntityIDs;
+      this.clusterIndex = ClusterIndex.build(clusterEntityIDs);
+    }
+
+
+    /**
+     * Copies the given lists into an immutable result.
+     */
+    public static Result of(List<EntityID> centerIDs,
+        List<List<EntityID>> clusterEntityIDs) {
+      List<List<EntityID>> clusters = new ArrayList<>(clusterEntityIDs.size());
+      for (List<EntityID> cluster : clusterEntityIDs) {
+        clusters.add(Collections.unmodifiableList(new ArrayList<>(cluster)));
+      }
+      return new Result(
+          Collections.unmodifiableList(new ArrayList<>(centerIDs)),
+          Collections.unmodifiableList(clusters));
+    }
+
+
+    public List<EntityID> getCenterIDs() {
+      return this.centerIDs;
+    }
+
+
+    public List<List<EntityID>> getClusterEntityIDs() {
+      return this.clusterEntityIDs;
+    }
+
+
+    public ClusterIndex getClusterIndex() {
+      return this.clusterIndex;
+    }
+  }
+}
@@ -0,0 +1,536 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.precompute.PrecomputeData;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contraction hierarchy over an {@link AreaGraph}.
+ * <p>
+ * Nodes are contracted one by one, cheapest first by edge difference; when a
+ * node is removed, a shortcut is added between two of its neighbours unless
+ * a witness search finds a path between them that is at least as short
+ * without it. Every node keeps only its edges to nodes contracted later
+ * ("upward" edges), so a query is two small Dijkstra searches that only go
+ * up, see {@link ContractionHierarchySearch}. A shortcut remembers the node
+ * it bypasses, which is enough to unpack it into the original areas.
+ * <p>
+ * The hierarchy is built on the plain edge weights and is immutable.
+ */
+public final class ContractionHierarchy {
+
+  // settled nodes after which a witness search gives up and the shortcut is
+  // added anyway; more shortcuts only cost query time, not correctness
+  private static final int WITNESS_LIMIT = 256;
+
+  private static final Map<Long, ContractionHierarchy> SHARED = new ConcurrentHashMap<>();
+
+  private final AreaGraph graph;
+  private final int[] rank;
+  private final int[] offsets;
+  private final int[] targets;
+  private final double[] weights;
+  // bypassed node of a shortcut, or -1 for an edge of the graph
+  private final int[] middles;
+
+  private ContractionHierarchy(AreaGraph graph, int[] rank, int[] offsets,
+      int[] targets, double[] weights, int[] middles) {
+    this.graph = graph;
+    this.rank = rank;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.middles = middles;
+  }
+
+
+  /**
+   * Returns the hierarchy for the map of {@code graph}, building it once per
+   * JVM; agents on the same map share one instance.
+   */
+  public static ContractionHierarchy of(AreaGraph graph) {
+    return SHARED.computeIfAbsent(graph.getFingerprint(), key -> build(graph));
+  }
+
+
+  public static ContractionHierarchy build(AreaGraph graph) {
+    return new Builder(graph).build();
+  }
+
+
+  /**
+   * Stores the hierarchy under {@code prefix}.
+   */
+  public void write(PrecomputeData precomputeData, String prefix) {
+    precomputeData.setString(prefix + ".fingerprint",
+        Long.toHexString(this.graph.getFingerprint()));
+    precomputeData.setString(prefix + ".rank", PackedArrays.encode(this.rank));
+    precomputeData.setString(prefix + ".offsets",
+        PackedArrays.encode(this.offsets));
+    precomputeData.setString(prefix + ".targets",
+        PackedArrays.encode(this.targets));
+    precomputeData.setString(prefix + ".weights",
+        PackedArrays.encode(this.weights));
+    precomputeData.setString(prefix + ".middles",
+        PackedArrays.encode(this.middles));
+  }
+
+
+  /**
+   * Reads a hierarchy written by {@link #write(PrecomputeData, String)}, or
+   * returns null if there is none or it was built for another map. Agents on
+   * the same map share the decoded hierarchy.
+   */
+  public static ContractionHierarchy read(PrecomputeData precomputeData,
+      String prefix, AreaGraph graph) {
+    String fingerprint = precomputeData.getString(prefix + ".fingerprint");
+    if (fingerprint == null
+        || !fingerprint.equals(Long.toHexString(graph.getFingerprint()))) {
+      return null;
+    }
+    return SHARED.computeIfAbsent(graph.getFingerprint(),
+        key -> readArrays(precomputeData, prefix, graph));
+  }
+
+
+  private static ContractionHierarchy readArrays(
+      PrecomputeData precomputeData, String prefix, AreaGraph graph) {
+    int[] rank = PackedArrays.decodeInts(
+        precomputeData.getString(prefix + ".rank"));
+    int[] offsets = PackedArrays.decodeInts(
+        precomputeData.getString(prefix + ".offsets"));
+    int[] targets = PackedArrays.decodeInts(
+        precomputeData.getString(prefix + ".targets"));
+    double[] weights = PackedArrays.decodeDoubles(
+        precomputeData.getString(prefix + ".weights"));
+    int[] middles = PackedArrays.decodeInts(
+        precomputeData.getString(prefix + ".middles"));
+    int n = graph.size();
+    if (rank == null || offsets == null || targets == null || weights == null
+        || middles == null || rank.length != n || offsets.length != n + 1
+        || targets.length != offsets[n] || weights.length != offsets[n]
+        || middles.length != offsets[n]) {
+      return null;
+    }
+    return new ContractionHierarchy(graph, rank, offsets, targets, weights,
+        middles);
+  }
+
+
+  public AreaGraph getGraph() {
+    return this.graph;
+  }
+
+
+  /**
+   * Position of {@code node} in the contraction order.
+   */
+  public int getRank(int node) {
+    return this.rank[node];
+  }
+
+
+  /**
+   * The number of upward edges, shortcuts included.
+   */
+  public int getEdgeCount() {
+    return this.targets.length;
+  }
+
+
+  public int getFirstEdge(int node) {
+    return this.offsets[node];
+  }
+
+
+  public int getDegree(int node) {
+    return this.offsets[node + 1] - this.offsets[node];
+  }
+
+
+  public int getTarget(int edge) {
+    return this.targets[edge];
+  }
+
+
+  public double getWeight(int edge) {
+    return this.weights[edge];
+  }
+
+
+  /**
+   * The node bypassed by the shortcut {@code edge}, or -1 if it is an edge of
+   * the graph.
+   */
+  public int getMiddle(int edge) {
+    return this.middles[edge];
+  }
+
+
+  /**
+   * The upward edge between {@code a} and {@code b}, or -1 if there is none.
+   */
+  public int findEdge(int a, int b) {
+    int low = this.rank[a] < this.rank[b] ? a : b;
+    int high = low == a ? b : a;
+    for (int e = this.offsets[low]; e < this.offsets[low + 1]; e++) {
+      if (this.targets[e] == high) {
+        return e;
+      }
+    }
+    return -1;
+  }
+
+
+  /**
+   * Contraction state. Edges are kept undirected, in both endpoints' lists,
+   * and removed lazily: an edge to a contracted node is simply skipped.
+   */
+  private static final class Builder {
+
+    private final AreaGraph graph;
+    private final int n;
+    private final int[][] neighbours;
+    private final double[][] edgeWeights;
+    private final int[][] edgeMiddles;
+    private final int[] degree;
+    private final boolean[] contracted;
+    private final int[] contractedNeighbours;
+
+    // witness search
+    private final double[] distance;
+    private final int[] visited;
+    private int stamp;
+    private final NodeHeap heap;
+
+    // upward edges in contraction order
+    private int[] upFrom = new int[16];
+    private int[] upTo = new int[16];
+    private double[] upWeight = new double[16];
+    private int[] upMiddle = new int[16];
+    private int upCount;
+
+    Builder(AreaGraph graph) {
+      this.graph = graph;
+      this.n = graph.size();
+      this.neighbours = new int[this.n][];
+      this.edgeWeights = new double[this.n][];
+      this.edgeMiddles = new int[this.n][];
+      this.degree = new int[this.n];
+      for (int v = 0; v < this.n; v++) {
+        int d = graph.getDegree(v);
+        int first = graph.getFirstEdge(v);
+        this.neighbours[v] = new int[Math.max(4, d)];
+        this.edgeWeights[v] = new double[Math.max(4, d)];
+        this.edgeMiddles[v] = new int[Math.max(4, d)];
+        for (int i = 0; i < d; i++) {
+          this.neighbours[v][i] = graph.getTarget(first + i);
+          this.edgeWeights[v][i] = graph.getWeight(first + i);
+          this.edgeMiddles[v][i] = -1;
+        }
+        this.degree[v] = d;
+      }
+      this.contracted = new boolean[this.n];
+      this.contractedNeighbours = new int[this.n];
+      this.distance = new double[this.n];
+      this.visited = new int[this.n];
+      this.heap = new NodeHeap(this.n);
+    }
+
+
+    ContractionHierarchy build() {
+      NodeHeap order = new NodeHeap(this.n);
+      for (int v = 0; v < this.n; v++) {
+        order.push(this.priority(v), v);
+      }
+      int[] rank = new int[this.n];
+      int next = 0;
+      while (!order.isEmpty()) {
+        int v = order.peekNode();
+        order.pop();
+        if (this.contracted[v]) {
+          continue;
+        }
+        // lazy update: the priority may have grown since it was queued
+        double priority = this.priority(v);
+        if (!order.isEmpty() && priority > order.peekKey()) {
+          order.push(priority, v);
+          continue;
+        }
+        this.contract(v, false);
+        this.contracted[v] = true;
+        rank[v] = next++;
+        for (int i = 0; i < this.degree[v]; i++) {
+          int u = this.neighbours[v][i];
+          if (!this.contracted[u]) {
+            this.contractedNeighbours[u]++;
+          }
+        }
+      }
+      return this.toHierarchy(rank);
+    }
+
+
+    private double priority(int v) {
+      int edges = 0;
+      for (int i = 0; i < this.degree[v]; i++) {
+        if (!this.contracted[this.neighbours[v][i]]) {
+          edges++;
+        }
+      }
+      return this.contract(v, true) - edges + this.contractedNeighbours[v];
+    }
+
+
+    /**
+     * Adds the shortcuts needed to remove {@code v}, or only counts them if
+     * {@code simulate} is set. Before removing, the remaining edges of
+     * {@code v} become its upward edges.
+     */
+    private int contract(int v, boolean simulate) {
+      int[] nb = this.neighbours[v];
+      double[] w = this.edgeWeights[v];
+      int d = this.degree[v];
+      double maxWeight = 0.0D;
+      for (int i = 0; i < d; i++) {
+        if (!this.contracted[nb[i]]) {
+          maxWeight = Math.max(maxWeight, w[i]);
+        }
+      }
+      if (!simulate) {
+        for (int i = 0; i < d; i++) {
+          if (!this.contracted[nb[i]]) {
+            this.addUpward(v, nb[i], w[i], this.edgeMiddles[v][i]);
+          }
+        }
+      }
+      int shortcuts = 0;
+      for (int i = 0; i < d; i++) {
+        int u = nb[i];
+        if (this.contracted[u]) {
+          continue;
+        }
+        this.witnessSearch(u, v, w[i] + maxWeight);
+        // the neighbour list of v does not change while v is contracted
+        for (int j = i + 1; j < d; j++) {
+          int x = nb[j];
+          if (this.contracted[x] || x == u) {
+            continue;
+          }
+          double via = w[i] + w[j];
+          if (this.visited[x] == this.stamp && this.distance[x] <= via) {
+            continue;
+          }
+          shortcuts++;
+          if (!simulate) {
+            this.addEdge(u, x, via, v);
+          }
+        }
+      }
+      return shortcuts;
+    }
+
+
+    /**
+     * Dijkstra from {@code source} over the remaining graph without
+     * {@code excluded}, up to {@code limit} or {@link #WITNESS_LIMIT}
+     * settled nodes.
+     */
+    private void witnessSearch(int source, int excluded, double limit) {
+      if (++this.stamp == Integer.MAX_VALUE) {
+        Arrays.fill(this.visited, 0);
+        this.stamp = 1;
+      }
+      this.heap.clear();
+      this.visited[source] = this.stamp;
+      this.distance[source] = 0.0D;
+      this.heap.push(0.0D, source);
+      int settled = 0;
+      while (!this.heap.isEmpty() && settled < WITNESS_LIMIT) {
+        double d = this.heap.peekKey();
+        int u = this.heap.peekNode();
+        this.heap.pop();
+        if (d > this.distance[u]) {
+          continue;
+        }
+        if (d > limit) {
+          break;
+        }
+        settled++;
+        int[] nb = this.neighbours[u];
+        double[] w = this.edgeWeights[u];
+        for (int i = 0; i < this.degree[u]; i++) {
+          int x = nb[i];
+          if (x == excluded || this.contracted[x]) {
+            continue;
+          }
+          double nd = d + w[i];
+          if (this.visited[x] != this.stamp || nd < this.distance[x]) {
+            this.visited[x] = this.stamp;
+            this.distance[x] = nd;
+            this.heap.push(nd, x);
+          }
+        }
+      }
+    }
+
+
+    private void addEdge(int u, int x, double weight, int middle) {
+      if (this.updateEdge(u, x, weight, middle)) {
+        this.updateEdge(x, u, weight, middle);
+        return;
+      }
+      this.appendEdge(u, x, weight, middle);
+      this.appendEdge(x, u, weight, middle);
+    }
+
+
+    // lowers an existing edge; true if the edge exists
+    private boolean updateEdge(int u, int x, double weight, int middle) {
+      int[] nb = this.neighbours[u];
+      for (int i = 0; i < this.degree[u]; i++) {
+        if (nb[i] == x) {
+          if (weight < this.edgeWeights[u][i]) {
+            this.edgeWeights[u][i] = weight;
+            this.edgeMiddles[u][i] = middle;
+          }
+          return true;
+        }
+      }
+      return false;
+    }
+
+
+    private void appendEdge(int u, int x, double weight, int middle) {
+      int d = this.degree[u];
+      if (d == this.neighbours[u].length) {
+        this.neighbours[u] = Arrays.copyOf(this.neighbours[u], d * 2);
+        this.edgeWeights[u] = Arrays.copyOf(this.edgeWeights[u], d * 2);
+        this.edgeMiddles[u] = Arrays.copyOf(this.edgeMiddles[u], d * 2);
+      }
+      this.neighbours[u][d] = x;
+      this.edgeWeights[u][d] = weight;
+      this.edgeMiddles[u][d] = middle;
+      this.degree[u] = d + 1;
+    }
+
+
+    private void addUpward(int from, int to, double weight, int middle) {
+      if (this.upCount == this.upFrom.length) {
+        int size = this.upCount * 2;
+        this.upFrom = Arrays.copyOf(this.upFrom, size);
+        this.upTo = Arrays.copyOf(this.upTo, size);
+        this.upWeight = Arrays.copyOf(this.upWeight, size);
+        this.upMiddle = Arrays.copyOf(this.upMiddle, size);
+      }
+      this.upFrom[this.upCount] = from;
+      this.upTo[this.upCount] = to;
+      this.upWeight[this.upCount] = weight;
+      this.upMiddle[this.upCount] = middle;
+      this.upCount++;
+    }
+
+
+    private ContractionHierarchy toHierarchy(int[] rank) {
+      int[] offsets = new int[this.n + 1];
+      for (int e = 0; e < this.upCount; e++) {
+        offsets[this.upFrom[e] + 1]++;
+      }
+      for (int v = 0; v < this.n; v++) {
+        offsets[v + 1] += offsets[v];
+      }
+      int[] fill = Arrays.copyOf(offsets, this.n);
+      int[] targets = new int[this.upCount];
+      double[] weights = new double[this.upCount];
+      int[] middles = new int[this.upCount];
+      for (int e = 0; e < this.upCount; e++) {
+        int i = fill[this.upFrom[e]]++;
+        targets[i] = this.upTo[e];
+        weights[i] = this.upWeight[e];
+        middles[i] = this.upMiddle[e];
+      }
+      return new ContractionHierarchy(this.graph, rank, offsets, targets,
+          weights, middles);
+    }
+  }
+
+
+  /**
+   * Binary min-heap of (key, node) pairs without decrease-key; outdated
+   * entries are skipped by the caller.
+   */
+  static final class NodeHeap {
+
+    private double[] keys;
+    private int[] nodes;
+    private int size;
+
+    NodeHeap(int capacity) {
+      this.keys = new double[Math.max(4, capacity)];
+      this.nodes = new int[Math.max(4, capacity)];
+    }
+
+
+    boolean isEmpty() {
+      return this.size == 0;
+    }
+
+
+    void clear() {
+      this.size = 0;
+    }
+
+
+    double peekKey() {
+      return this.keys[0];
+    }
+
+
+    int peekNode() {
+      return this.nodes[0];
+    }
+
+
+    void push(double key, int node) {
+      if (this.size == this.keys.length) {
+        this.keys = Arrays.copyOf(this.keys, this.size * 2);
+        this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+      }
+      int i = this.size++;
+      while (i > 0) {
+        int p = (i - 1) >>> 1;
+        if (this.keys[p] <= key) {
+          break;
+        }
+        this.keys[i] = this.keys[p];
+        this.nodes[i] = this.nodes[p];
+        i = p;
+      }
+      this.keys[i] = key;
+      this.nodes[i] = node;
+    }
+
+
+    void pop() {
+      double key = this.keys[--this.size];
+      int node = this.nodes[this.size];
+      int i = 0;
+      int half = this.size >>> 1;
+      while (i < half) {
+        int c = 2 * i + 1;
+        if (c + 1 < this.size && this.keys[c + 1] < this.keys[c]) {
+          c++;
+        }
+        if (key <= this.keys[c]) {
+          break;
+        }
+        this.keys[i] = this.keys[c];
+        this.nodes[i] = this.nodes[c];
+        i = c;
+      }
+      this.keys[i] = key;
+      this.nodes[i] = node;
+    }
+  }
+}
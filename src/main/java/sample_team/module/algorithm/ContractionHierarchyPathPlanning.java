@@ -0,0 +1,267 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.communication.MessageManager;
+import adf.core.agent.develop.DevelopData;
+import adf.core.agent.info.AgentInfo;
+import adf.core.agent.info.ScenarioInfo;
+import adf.core.agent.info.WorldInfo;
+import adf.core.agent.module.ModuleManager;
+import adf.core.agent.precompute.PrecomputeData;
+import adf.core.component.module.algorithm.PathPlanning;
+import adf.core.debug.DefaultLogger;
+import java.util.Collection;
+import java.util.List;
+import org.apache.log4j.Logger;
+import rescuecore2.standard.entities.Road;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * PathPlanning that answers queries on a {@link ContractionHierarchy}, which
+ * settles a few hundred areas per query even on the largest maps.
+ * <p>
+ * The hierarchy is built during precompute and stored with the precompute
+ * data, next to the clustering; agents without it build it once per map at
+ * startup. Edges cost the distance between area centres, like the default
+ * DijkstraPathPlanning. The hierarchy cannot see blockades, so with a
+ * positive
+ * {@code sample_team.module.algorithm.ContractionHierarchyPathPlanning.blockadePenalty}
+ * a path that enters a blocked road is searched again with plain Dijkstra
+ * and the penalty. A path that avoids every blocked road is shortest with
+ * penalties too, because penalties only make other paths longer.
+ * <p>
+ * Both {@code getDistance} methods report the length between area centres
+ * of the path this module would plan, without penalties, like
+ * DijkstraPathPlanning; penalties only choose the path.
+ * {@link Double#MAX_VALUE} means there is no path.
+ */
+public class ContractionHierarchyPathPlanning extends PathPlanning {
+
+  private static final String KEY_PREFIX = "sample_team.module.algorithm.ContractionHierarchyPathPlanning";
+
+  private EntityID from;
+  private Collection<EntityID> targets;
+  private List<EntityID> result;
+  private double resultDistance;
+
+  private double blockadePenalty;
+
+  private AreaGraph graph;
+  private ContractionHierarchy hierarchy;
+  private ContractionHierarchySearch search;
+  private GraphSearch fallbackSearch;
+  private double[] penalties;
+  private int blockedCount;
+
+  private Logger logger;
+
+  public ContractionHierarchyPathPlanning(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
+    super(ai, wi, si, moduleManager, developData);
+    this.logger = DefaultLogger.getLogger(agentInfo.me());
+    this.blockadePenalty = developData.getDouble(KEY_PREFIX + ".blockadePenalty",
+        0.0D);
+  }
+
+
+  @Override
+  public PathPlanning precompute(PrecomputeData precomputeData) {
+    super.precompute(precomputeData);
+    if (this.getCountPrecompute() >= 2) {
+      return this;
+    }
+    this.graph = AreaGraph.of(this.worldInfo);
+    this.hierarchy = ContractionHierarchy.of(this.graph);
+    this.hierarchy.write(precomputeData, KEY_PREFIX);
+    this.init();
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning resume(PrecomputeData precomputeData) {
+    super.resume(precomputeData);
+    if (this.getCountResume() >= 2) {
+      return this;
+    }
+    this.graph = AreaGraph.of(this.worldInfo);
+    this.hierarchy = ContractionHierarchy.read(precomputeData, KEY_PREFIX,
+        this.graph);
+    if (this.hierarchy == null) {
+      logger.warn("no contraction hierarchy for this map, building it");
+    }
+    this.init();
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning preparate() {
+    super.preparate();
+    if (this.getCountPreparate() >= 2) {
+      return this;
+    }
+    this.init();
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning updateInfo(MessageManager messageManager) {
+    super.updateInfo(messageManager);
+    if (this.getCountUpdateInfo() >= 2) {
+      return this;
+    }
+    if (this.blockadePenalty > 0.0D) {
+      this.init();
+      for (EntityID id : this.worldInfo.getChanged().getChangedEntities()) {
+        this.updatePenalty(id);
+      }
+    }
+    return this;
+  }
+
+
+  @Override
+  public List<EntityID> getResult() {
+    return this.result;
+  }
+
+
+  @Override
+  public PathPlanning setFrom(EntityID id) {
+    this.from = id;
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning setDestination(Collection<EntityID> targets) {
+    this.targets = targets;
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning calc() {
+    this.result = null;
+    this.resultDistance = 0.0D;
+    this.init();
+    int start = this.graph.indexOf(this.from);
+    if (start < 0 || this.targets == null) {
+      return this;
+    }
+    int[] goals = new int[this.targets.size()];
+    int count = 0;
+    for (EntityID target : this.targets) {
+      int node = this.graph.indexOf(target);
+      if (node >= 0) {
+        goals[count++] = node;
+      }
+    }
+
+    long settled = this.search.getSettledCount();
+    this.search.search(start, goals, count);
+    if (this.isBlocked()) {
+      int goal = this.fallbackSearch.dijkstra(start, goals, count);
+      this.result = this.fallbackSearch.getPath(goal);
+      logger.debug("blocked, fell back to Dijkstra, path: " + this.result);
+    } else {
+      this.result = this.search.getPath();
+      logger.debug("settled " + (this.search.getSettledCount() - settled)
+          + " nodes, path: " + this.result);
+    }
+    this.resultDistance = this.pathDistance(this.result);
+    return this;
+  }
+
+
+  @Override
+  public double getDistance() {
+    return this.resultDistance;
+  }
+
+
+  @Override
+  public double getDistance(EntityID from, EntityID dest) {
+    this.init();
+    int source = this.graph.indexOf(from);
+    int goal = this.graph.indexOf(dest);
+    if (source < 0 || goal < 0) {
+      return Double.MAX_VALUE;
+    }
+    int[] goals = { goal };
+    this.search.search(source, goals, 1);
+    if (this.isBlocked()) {
+      this.fallbackSearch.dijkstra(source, goals, 1);
+      List<EntityID> path = this.fallbackSearch.getPath(goal);
+      return path != null ? this.pathDistance(path) : Double.MAX_VALUE;
+    }
+    // without penalties on the path its cost is its length
+    return this.search.getDistance();
+  }
+
+
+  private void init() {
+    if (this.search != null) {
+      return;
+    }
+    if (this.graph == null) {
+      this.graph = AreaGraph.of(this.worldInfo);
+    }
+    if (this.hierarchy == null) {
+      this.hierarchy = ContractionHierarchy.of(this.graph);
+    }
+    this.search = new ContractionHierarchySearch(this.hierarchy);
+    if (this.blockadePenalty > 0.0D) {
+      this.penalties = new double[this.graph.size()];
+      this.fallbackSearch = new GraphSearch(this.graph);
+      this.fallbackSearch.setNodePenalties(this.penalties);
+      for (StandardEntity entity : this.worldInfo.getEntitiesOfType(
+          StandardEntityURN.ROAD, StandardEntityURN.HYDRANT)) {
+        this.updatePenalty(entity.getID());
+      }
+    }
+  }
+
+
+  private void updatePenalty(EntityID id) {
+    StandardEntity entity = this.worldInfo.getEntity(id);
+    if (!(entity instanceof Road)) {
+      return;
+    }
+    int node = this.graph.indexOf(id);
+    if (node >= 0) {
+      Road road = (Road) entity;
+      boolean blocked = road.isBlockadesDefined()
+          && !road.getBlockades().isEmpty();
+      double penalty = blocked ? this.blockadePenalty : 0.0D;
+      if (penalty != this.penalties[node]) {
+        this.blockedCount += blocked ? 1 : -1;
+        this.penalties[node] = penalty;
+      }
+    }
+  }
+
+
+  // whether the path of the last hierarchy search enters a road that has a
+  // penalty
+  private boolean isBlocked() {
+    return this.blockedCount > 0
+        && this.search.entersPenalised(this.penalties);
+  }
+
+
+  // the length of the path between area centres, without penalties
+  private double pathDistance(List<EntityID> path) {
+    if (path == null) {
+      return 0.0D;
+    }
+    double distance = 0.0D;
+    for (int i = 1; i < path.size(); i++) {
+      distance += this.graph.getLineDistance(
+          this.graph.indexOf(path.get(i - 1)), this.graph.indexOf(path.get(i)));
+    }
+    return distance;
+  }
+}
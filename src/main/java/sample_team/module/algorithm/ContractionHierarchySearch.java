@@ -0,0 +1,246 @@
+package sample_team.module.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Bidirectional upward search on a {@link ContractionHierarchy}.
+ * <p>
+ * The forward search starts at the source and the backward search at all
+ * goals at once; both only follow edges to nodes of higher rank, and the
+ * shortest path is found where they meet at the highest node of the path.
+ * The result is the shortest path on the plain edge weights of the graph.
+ * Work arrays are reused between queries like in {@link GraphSearch}. An
+ * instance is not thread-safe.
+ */
+public final class ContractionHierarchySearch {
+
+  private final ContractionHierarchy hierarchy;
+  private final AreaGraph graph;
+
+  private final Side forward;
+  private final Side backward;
+  private int stamp;
+
+  private int meeting;
+  private double best;
+  private long settled;
+  private int[] stack;
+
+  public ContractionHierarchySearch(ContractionHierarchy hierarchy) {
+    this.hierarchy = hierarchy;
+    this.graph = hierarchy.getGraph();
+    this.forward = new Side(this.graph.size());
+    this.backward = new Side(this.graph.size());
+    this.meeting = -1;
+    this.stack = new int[16];
+  }
+
+
+  /**
+   * Shortest path from {@code source} to the nearest of the
+   * {@code goalCount} nodes in {@code goals}.
+   *
+   * @return the goal that was reached, or -1
+   */
+  public int search(int source, int[] goals, int goalCount) {
+    if (++this.stamp == Integer.MAX_VALUE) {
+      Arrays.fill(this.forward.visited, 0);
+      Arrays.fill(this.backward.visited, 0);
+      this.stamp = 1;
+    }
+    this.meeting = -1;
+    this.best = Double.MAX_VALUE;
+    this.forward.heap.clear();
+    this.backward.heap.clear();
+    this.forward.seed(source, this.stamp);
+    for (int i = 0; i < goalCount; i++) {
+      this.backward.seed(goals[i], this.stamp);
+    }
+    if (goalCount == 0) {
+      return -1;
+    }
+
+    while (true) {
+      boolean canForward = !this.forward.heap.isEmpty()
+          && this.forward.heap.peekKey() < this.best;
+      boolean canBackward = !this.backward.heap.isEmpty()
+          && this.backward.heap.peekKey() < this.best;
+      if (canForward && (!canBackward
+          || this.forward.heap.peekKey() <= this.backward.heap.peekKey())) {
+        this.step(this.forward, this.backward);
+      } else if (canBackward) {
+        this.step(this.backward, this.forward);
+      } else {
+        break;
+      }
+    }
+    if (this.meeting < 0) {
+      return -1;
+    }
+    int goal = this.meeting;
+    while (this.backward.parent[goal] != goal) {
+      goal = this.backward.parent[goal];
+    }
+    return goal;
+  }
+
+
+  private void step(Side side, Side other) {
+    double d = side.heap.peekKey();
+    int u = side.heap.peekNode();
+    side.heap.pop();
+    if (d > side.distance[u]) {
+      return;
+    }
+    this.settled++;
+    if (other.visited[u] == this.stamp && d + other.distance[u] < this.best) {
+      this.best = d + other.distance[u];
+      this.meeting = u;
+    }
+    int first = this.hierarchy.getFirstEdge(u);
+    int last = first + this.hierarchy.getDegree(u);
+    for (int e = first; e < last; e++) {
+      int next = this.hierarchy.getTarget(e);
+      double nd = d + this.hierarchy.getWeight(e);
+      if (side.visited[next] != this.stamp || nd < side.distance[next]) {
+        side.visited[next] = this.stamp;
+        side.distance[next] = nd;
+        side.parent[next] = u;
+        side.heap.push(nd, next);
+      }
+    }
+  }
+
+
+  /**
+   * Cost of the path found by the last search, or {@link Double#MAX_VALUE}
+   * if no goal was reached.
+   */
+  public double getDistance() {
+    return this.best;
+  }
+
+
+  /**
+   * The path found by the last search with all shortcuts unpacked, both ends
+   * included, or null if no goal was reached.
+   */
+  public List<EntityID> getPath() {
+    if (this.meeting < 0) {
+      return null;
+    }
+    // hierarchy nodes from the source up to the meeting node and back down
+    List<Integer> chain = new ArrayList<>();
+    for (int node = this.meeting;; node = this.forward.parent[node]) {
+      chain.add(0, node);
+      if (this.forward.parent[node] == node) {
+        break;
+      }
+    }
+    for (int node = this.meeting; this.backward.parent[node] != node;) {
+      node = this.backward.parent[node];
+      chain.add(node);
+    }
+
+    List<EntityID> path = new ArrayList<>();
+    path.add(this.graph.getID(chain.get(0)));
+    for (int i = 1; i < chain.size(); i++) {
+      this.unpack(chain.get(i - 1), chain.get(i), path, null);
+    }
+    return path;
+  }
+
+
+  /**
+   * Whether the path found by the last search enters a node with a positive
+   * entry in {@code penalties}. Shortcuts are unpacked without building the
+   * path, and the walk stops at the first such node.
+   */
+  public boolean entersPenalised(double[] penalties) {
+    if (this.meeting < 0) {
+      return false;
+    }
+    for (int node = this.meeting; this.forward.parent[node] != node;
+        node = this.forward.parent[node]) {
+      if (this.unpack(this.forward.parent[node], node, null, penalties)) {
+        return true;
+      }
+    }
+    for (int node = this.meeting; this.backward.parent[node] != node;
+        node = this.backward.parent[node]) {
+      if (this.unpack(node, this.backward.parent[node], null, penalties)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  // visits the nodes after from up to to along the hierarchy edge (from, to)
+  // with its shortcuts unpacked depth first, left to right; adds them to path
+  // if given, and returns true at the first node with a positive penalty
+  private boolean unpack(int from, int to, List<EntityID> path,
+      double[] penalties) {
+    int top = 0;
+    this.stack[top++] = to;
+    while (top > 0) {
+      int next = this.stack[top - 1];
+      int middle = this.hierarchy.getMiddle(
+          this.hierarchy.findEdge(from, next));
+      if (middle < 0) {
+        if (penalties != null && penalties[next] > 0.0D) {
+          return true;
+        }
+        if (path != null) {
+          path.add(this.graph.getID(next));
+        }
+        from = next;
+        top--;
+      } else {
+        if (top == this.stack.length) {
+          this.stack = Arrays.copyOf(this.stack, top * 2);
+        }
+        this.stack[top++] = middle;
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * The number of settled nodes since this instance was created.
+   */
+  public long getSettledCount() {
+    return this.settled;
+  }
+
+
+  private static final class Side {
+
+    final int[] visited;
+    final double[] distance;
+    final int[] parent;
+    final ContractionHierarchy.NodeHeap heap;
+
+    Side(int n) {
+      this.visited = new int[n];
+      this.distance = new double[n];
+      this.parent = new int[n];
+      this.heap = new ContractionHierarchy.NodeHeap(64);
+    }
+
+
+    void seed(int node, int stamp) {
+      if (this.visited[node] == stamp) {
+        return;
+      }
+      this.visited[node] = stamp;
+      this.distance[node] = 0.0D;
+      this.parent[node] = node;
+      this.heap.push(0.0D, node);
+    }
+  }
+}
@@ -0,0 +1,329 @@
+package sample_team.module.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * D* Lite search state over an {@link AreaGraph} that survives between
+ * queries.
+ * <p>
+ * The search runs backwards from the goal set towards the start, guided by
+ * the straight-line distance to the start. When the start moves, goals are
+ * added or removed, or a node penalty changes, only the nodes whose distance
+ * to the nearest goal is affected are expanded again; everything else is
+ * reused from earlier queries. The cost of an edge is its graph weight plus
+ * the penalty of the node it enters, as in {@link GraphSearch}.
+ * <p>
+ * An instance is not thread-safe.
+ */
+public final class DStarLite {
+
+  private static final double INF = Double.POSITIVE_INFINITY;
+
+  private final AreaGraph graph;
+  private final double[] penalties;
+  private final double[] g;
+  private final double[] rhs;
+  private final BitSet goals;
+
+  // indexed binary heap ordered by (key1, key2)
+  private final int[] heap;
+  private final int[] heapPosition;
+  private final double[] key1;
+  private final double[] key2;
+  private int heapSize;
+
+  private int start;
+  private double km;
+  private long expanded;
+
+  public DStarLite(AreaGraph graph) {
+    this.graph = graph;
+    int n = graph.size();
+    this.penalties = new double[n];
+    this.g = new double[n];
+    this.rhs = new double[n];
+    this.goals = new BitSet(n);
+    this.heap = new int[Math.max(1, n)];
+    this.heapPosition = new int[n];
+    this.key1 = new double[n];
+    this.key2 = new double[n];
+    this.reset();
+  }
+
+
+  /**
+   * Forgets all search state, goals and the start; penalties are kept.
+   */
+  public void reset() {
+    Arrays.fill(this.g, INF);
+    Arrays.fill(this.rhs, INF);
+    Arrays.fill(this.heapPosition, -1);
+    this.goals.clear();
+    this.heapSize = 0;
+    this.start = -1;
+    this.km = 0.0D;
+  }
+
+
+  public AreaGraph getGraph() {
+    return this.graph;
+  }
+
+
+  /**
+   * Replaces the goal set; only nodes that became or stopped being a goal
+   * are touched.
+   */
+  public void setGoals(BitSet goals) {
+    BitSet changed = (BitSet) goals.clone();
+    changed.xor(this.goals);
+    for (int node = changed.nextSetBit(0); node >= 0;
+        node = changed.nextSetBit(node + 1)) {
+      this.goals.flip(node);
+      this.updateVertex(node);
+    }
+  }
+
+
+  public boolean isGoal(int node) {
+    return this.goals.get(node);
+  }
+
+
+  /**
+   * Sets the extra cost of entering {@code node}.
+   */
+  public void setPenalty(int node, double penalty) {
+    if (this.penalties[node] == penalty) {
+      return;
+    }
+    this.penalties[node] = penalty;
+    // every edge into node changed, i.e. the out-edge of each neighbour
+    int first = this.graph.getFirstEdge(node);
+    int last = first + this.graph.getDegree(node);
+    for (int e = first; e < last; e++) {
+      this.updateVertex(this.graph.getTarget(e));
+    }
+  }
+
+
+  /**
+   * Moves the start of the search to {@code node}.
+   */
+  public void setStart(int node) {
+    if (this.start >= 0 && node != this.start) {
+      this.km += this.graph.getLineDistance(this.start, node);
+    }
+    this.start = node;
+  }
+
+
+  /**
+   * Brings the distances up to date for the current start.
+   *
+   * @return the cost from the start to the nearest goal, or infinity if no
+   *         goal can be reached
+   */
+  public double compute() {
+    int s = this.start;
+    if (s < 0) {
+      return INF;
+    }
+    while (this.heapSize > 0) {
+      int u = this.heap[0];
+      double old1 = this.key1[u];
+      double old2 = this.key2[u];
+      double start2 = Math.min(this.g[s], this.rhs[s]);
+      double start1 = start2 + this.km;
+      if (!less(old1, old2, start1, start2) && this.rhs[s] <= this.g[s]) {
+        break;
+      }
+      this.expanded++;
+      double new2 = Math.min(this.g[u], this.rhs[u]);
+      double new1 = new2 + this.heuristic(u) + this.km;
+      if (less(old1, old2, new1, new2)) {
+        this.key1[u] = new1;
+        this.key2[u] = new2;
+        this.siftDown(0);
+      } else if (this.g[u] > this.rhs[u]) {
+        this.g[u] = this.rhs[u];
+        this.remove(u);
+        this.updateNeighbours(u);
+      } else {
+        this.g[u] = INF;
+        this.updateVertex(u);
+        this.updateNeighbours(u);
+      }
+    }
+    return this.rhs[s];
+  }
+
+
+  /**
+   * The path from the start to the nearest goal after {@link #compute()},
+   * both ends included, or null if no goal can be reached.
+   */
+  public List<EntityID> getPath() {
+    int node = this.start;
+    if (node < 0 || this.rhs[node] == INF) {
+      return null;
+    }
+    List<EntityID> path = new ArrayList<>();
+    path.add(this.graph.getID(node));
+    int limit = this.graph.size();
+    while (!this.goals.get(node)) {
+      int best = -1;
+      double bestCost = INF;
+      int first = this.graph.getFirstEdge(node);
+      int last = first + this.graph.getDegree(node);
+      for (int e = first; e < last; e++) {
+        int next = this.graph.getTarget(e);
+        double cost = this.graph.getWeight(e) + this.penalties[next]
+            + this.g[next];
+        if (cost < bestCost) {
+          bestCost = cost;
+          best = next;
+        }
+      }
+      if (best < 0 || --limit < 0) {
+        return null;
+      }
+      node = best;
+      path.add(this.graph.getID(node));
+    }
+    return path;
+  }
+
+
+  /**
+   * The number of node expansions since this instance was created.
+   */
+  public long getExpandedCount() {
+    return this.expanded;
+  }
+
+
+  private double heuristic(int node) {
+    return this.start < 0 ? 0.0D
+        : this.graph.getLineDistance(this.start, node);
+  }
+
+
+  private void updateNeighbours(int node) {
+    int first = this.graph.getFirstEdge(node);
+    int last = first + this.graph.getDegree(node);
+    for (int e = first; e < last; e++) {
+      this.updateVertex(this.graph.getTarget(e));
+    }
+  }
+
+
+  private void updateVertex(int u) {
+    if (this.goals.get(u)) {
+      this.rhs[u] = 0.0D;
+    } else {
+      double best = INF;
+      int first = this.graph.getFirstEdge(u);
+      int last = first + this.graph.getDegree(u);
+      for (int e = first; e < last; e++) {
+        int v = this.graph.getTarget(e);
+        double cost = this.graph.getWeight(e) + this.penalties[v] + this.g[v];
+        if (cost < best) {
+          best = cost;
+        }
+      }
+      this.rhs[u] = best;
+    }
+    boolean queued = this.heapPosition[u] >= 0;
+    if (this.g[u] != this.rhs[u]) {
+      double k2 = Math.min(this.g[u], this.rhs[u]);
+      double k1 = k2 + this.heuristic(u) + this.km;
+      if (queued) {
+        boolean up = less(k1, k2, this.key1[u], this.key2[u]);
+        this.key1[u] = k1;
+        this.key2[u] = k2;
+        if (up) {
+          this.siftUp(this.heapPosition[u]);
+        } else {
+          this.siftDown(this.heapPosition[u]);
+        }
+      } else {
+        this.key1[u] = k1;
+        this.key2[u] = k2;
+        int i = this.heapSize++;
+        this.heap[i] = u;
+        this.heapPosition[u] = i;
+        this.siftUp(i);
+      }
+    } else if (queued) {
+      this.remove(u);
+    }
+  }
+
+
+  private void remove(int u) {
+    int i = this.heapPosition[u];
+    this.heapPosition[u] = -1;
+    int last = this.heap[--this.heapSize];
+    if (i == this.heapSize) {
+      return;
+    }
+    this.heap[i] = last;
+    this.heapPosition[last] = i;
+    this.siftUp(i);
+    this.siftDown(this.heapPosition[last]);
+  }
+
+
+  private static boolean less(double a1, double a2, double b1, double b2) {
+    return a1 < b1 || (a1 == b1 && a2 < b2);
+  }
+
+
+  private boolean lessNode(int a, int b) {
+    return less(this.key1[a], this.key2[a], this.key1[b], this.key2[b]);
+  }
+
+
+  private void siftUp(int i) {
+    int node = this.heap[i];
+    while (i > 0) {
+      int p = (i - 1) >>> 1;
+      int up = this.heap[p];
+      if (!this.lessNode(node, up)) {
+        break;
+      }
+      this.heap[i] = up;
+      this.heapPosition[up] = i;
+      i = p;
+    }
+    this.heap[i] = node;
+    this.heapPosition[node] = i;
+  }
+
+
+  private void siftDown(int i) {
+    int node = this.heap[i];
+    int half = this.heapSize >>> 1;
+    while (i < half) {
+      int c = 2 * i + 1;
+      if (c + 1 < this.heapSize
+          && this.lessNode(this.heap[c + 1], this.heap[c])) {
+        c++;
+      }
+      int child = this.heap[c];
+      if (!this.lessNode(child, node)) {
+        break;
+      }
+      this.heap[i] = child;
+      this.heapPosition[child] = i;
+      i = c;
+    }
+    this.heap[i] = node;
+    this.heapPosition[node] = i;
+  }
+}
@@ -0,0 +1,233 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.communication.MessageManager;
+import adf.core.agent.develop.DevelopData;
+import adf.core.agent.info.AgentInfo;
+import adf.core.agent.info.ScenarioInfo;
+import adf.core.agent.info.WorldInfo;
+import adf.core.agent.module.ModuleManager;
+import adf.core.agent.precompute.PrecomputeData;
+import adf.core.component.module.algorithm.PathPlanning;
+import adf.core.debug.DefaultLogger;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import org.apache.log4j.Logger;
+import rescuecore2.standard.entities.Road;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * PathPlanning that keeps a {@link DStarLite} search between calls, so a
+ * query after the agent moved a few areas, a few goals changed or a few
+ * roads were blocked or cleared only repairs the affected part of the
+ * search instead of starting over.
+ * <p>
+ * Edges cost the distance between area centres, like the default
+ * DijkstraPathPlanning. With a positive
+ * {@code sample_team.module.algorithm.DStarLitePathPlanning.blockadePenalty}
+ * entering a road that has blockades costs that much more.
+ * <p>
+ * Both {@code getDistance} methods report the length between area centres
+ * of the path this module would plan, without penalties, like
+ * DijkstraPathPlanning; penalties only choose the path.
+ * {@link Double#MAX_VALUE} means there is no path. A point-to-point query
+ * runs a separate Dijkstra search with the same penalties, so it leaves the
+ * D* Lite state of the last {@link #calc()} intact.
+ */
+public class DStarLitePathPlanning extends PathPlanning {
+
+  private EntityID from;
+  private Collection<EntityID> targets;
+  private List<EntityID> result;
+  private double resultDistance;
+
+  private double blockadePenalty;
+
+  private AreaGraph graph;
+  private DStarLite search;
+  private GraphSearch distanceSearch;
+  private double[] penalties;
+
+  private Logger logger;
+
+  public DStarLitePathPlanning(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
+    super(ai, wi, si, moduleManager, developData);
+    this.logger = DefaultLogger.getLogger(agentInfo.me());
+    this.blockadePenalty = developData.getDouble(
+        "sample_team.module.algorithm.DStarLitePathPlanning.blockadePenalty",
+        0.0D);
+  }
+
+
+  @Override
+  public PathPlanning precompute(PrecomputeData precomputeData) {
+    super.precompute(precomputeData);
+    if (this.getCountPrecompute() >= 2) {
+      return this;
+    }
+    this.init();
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning resume(PrecomputeData precomputeData) {
+    super.resume(precomputeData);
+    if (this.getCountResume() >= 2) {
+      return this;
+    }
+    this.init();
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning preparate() {
+    super.preparate();
+    if (this.getCountPreparate() >= 2) {
+      return this;
+    }
+    this.init();
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning updateInfo(MessageManager messageManager) {
+    super.updateInfo(messageManager);
+    if (this.getCountUpdateInfo() >= 2) {
+      return this;
+    }
+    if (this.blockadePenalty > 0.0D) {
+      this.init();
+      for (EntityID id : this.worldInfo.getChanged().getChangedEntities()) {
+        this.updatePenalty(id);
+      }
+    }
+    return this;
+  }
+
+
+  @Override
+  public List<EntityID> getResult() {
+    return this.result;
+  }
+
+
+  @Override
+  public PathPlanning setFrom(EntityID id) {
+    this.from = id;
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning setDestination(Collection<EntityID> targets) {
+    this.targets = targets;
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning calc() {
+    this.result = null;
+    this.resultDistance = 0.0D;
+    this.init();
+    int start = this.graph.indexOf(this.from);
+    if (start < 0 || this.targets == null) {
+      return this;
+    }
+    BitSet goals = new BitSet(this.graph.size());
+    for (EntityID target : this.targets) {
+      int node = this.graph.indexOf(target);
+      if (node >= 0) {
+        goals.set(node);
+      }
+    }
+    if (goals.isEmpty()) {
+      return this;
+    }
+
+    long expanded = this.search.getExpandedCount();
+    this.search.setStart(start);
+    this.search.setGoals(goals);
+    this.search.compute();
+    this.result = this.search.getPath();
+    this.resultDistance = this.pathDistance(this.result);
+    logger.debug("expanded " + (this.search.getExpandedCount() - expanded)
+        + " nodes, path: " + this.result);
+    return this;
+  }
+
+
+  @Override
+  public double getDistance() {
+    return this.resultDistance;
+  }
+
+
+  @Override
+  public double getDistance(EntityID from, EntityID dest) {
+    this.init();
+    int source = this.graph.indexOf(from);
+    int goal = this.graph.indexOf(dest);
+    if (source < 0 || goal < 0) {
+      return Double.MAX_VALUE;
+    }
+    if (this.distanceSearch == null) {
+      this.distanceSearch = new GraphSearch(this.graph);
+      this.distanceSearch.setNodePenalties(this.penalties);
+    }
+    this.distanceSearch.dijkstra(source, new int[] { goal }, 1);
+    List<EntityID> path = this.distanceSearch.getPath(goal);
+    return path != null ? this.pathDistance(path) : Double.MAX_VALUE;
+  }
+
+
+  private void init() {
+    if (this.search != null) {
+      return;
+    }
+    this.graph = AreaGraph.of(this.worldInfo);
+    this.search = new DStarLite(this.graph);
+    if (this.blockadePenalty > 0.0D) {
+      this.penalties = new double[this.graph.size()];
+      for (StandardEntity entity : this.worldInfo.getEntitiesOfType(
+          StandardEntityURN.ROAD, StandardEntityURN.HYDRANT)) {
+        this.updatePenalty(entity.getID());
+      }
+    }
+  }
+
+
+  private void updatePenalty(EntityID id) {
+    StandardEntity entity = this.worldInfo.getEntity(id);
+    if (!(entity instanceof Road)) {
+      return;
+    }
+    int node = this.graph.indexOf(id);
+    if (node >= 0) {
+      Road road = (Road) entity;
+      boolean blocked = road.isBlockadesDefined()
+          && !road.getBlockades().isEmpty();
+      this.penalties[node] = blocked ? this.blockadePenalty : 0.0D;
+      this.search.setPenalty(node, this.penalties[node]);
+    }
+  }
+
+
+  // the length of the path between area centres, without penalties
+  private double pathDistance(List<EntityID> path) {
+    if (path == null) {
+      return 0.0D;
+    }
+    double distance = 0.0D;
+    for (int i = 1; i < path.size(); i++) {
+      distance += this.graph.getLineDistance(
+          this.graph.indexOf(path.get(i - 1)), this.graph.indexOf(path.get(i)));
+    }
+    return distance;
+  }
+}
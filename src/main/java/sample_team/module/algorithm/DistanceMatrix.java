@@ -0,0 +1,201 @@
+package sample_team.module.algorithm;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Dense matrix of path costs between a list of source areas and a list of
+ * destination areas, for allocators that compare every agent with every
+ * target.
+ * <p>
+ * The matrix costs one Dijkstra search per distinct source, each stopping
+ * once all destinations are settled, or one per distinct destination when
+ * there are fewer of those: the graph is symmetric and a penalty is paid on
+ * entering a node, so a path costs the same in both directions apart from
+ * the penalties of its two ends. Searches can be spread over the shared
+ * fork-join pool of {@link KMeansKernel#getPool(int)}; the result is the
+ * same either way.
+ */
+public final class DistanceMatrix {
+
+  private final List<EntityID> sources;
+  private final List<EntityID> destinations;
+  // row-major, one row per source
+  private final double[] distances;
+  private final int searches;
+
+  private DistanceMatrix(List<EntityID> sources, List<EntityID> destinations,
+      double[] distances, int searches) {
+    this.sources = sources;
+    this.destinations = destinations;
+    this.distances = distances;
+    this.searches = searches;
+  }
+
+
+  /**
+   * Computes the path cost from every source to every destination.
+   * Entries for IDs that are not areas of {@code graph}, or that cannot be
+   * reached, are {@link Double#MAX_VALUE}.
+   *
+   * @param penalties   extra cost of entering each node as in
+   *                    {@link GraphSearch#setNodePenalties(double[])}, or
+   *                    null
+   * @param parallelism the number of worker threads; 1 or less runs every
+   *                    search on the calling thread
+   */
+  public static DistanceMatrix compute(AreaGraph graph,
+      List<EntityID> sources, List<EntityID> destinations, double[] penalties,
+      int parallelism) {
+    int[] sourceNodes = nodes(graph, sources);
+    int[] destinationNodes = nodes(graph, destinations);
+    int[] distinctSources = distinct(sourceNodes);
+    int[] distinctDestinations = distinct(destinationNodes);
+    boolean forward = distinctSources.length <= distinctDestinations.length;
+    int[] from = forward ? distinctSources : distinctDestinations;
+    int[] to = forward ? distinctDestinations : distinctSources;
+
+    double[][] rows = new double[from.length][];
+    SearchTask task = new SearchTask(graph, penalties, from, to, rows, 0,
+        from.length, Math.max(1, from.length / Math.max(1, parallelism)));
+    if (parallelism <= 1 || from.length <= 1) {
+      task.compute();
+    } else {
+      KMeansKernel.getPool(parallelism).invoke(task);
+    }
+
+    double[] distances = new double[sources.size() * destinations.size()];
+    int k = 0;
+    for (int source : sourceNodes) {
+      for (int destination : destinationNodes) {
+        if (source < 0 || destination < 0) {
+          distances[k++] = Double.MAX_VALUE;
+        } else if (forward) {
+          distances[k++] = rows[Arrays.binarySearch(from, source)]
+              [Arrays.binarySearch(to, destination)];
+        } else {
+          distances[k++] = reverse(rows[Arrays.binarySearch(from, destination)]
+              [Arrays.binarySearch(to, source)], source, destination, penalties);
+        }
+      }
+    }
+    return new DistanceMatrix(List.copyOf(sources), List.copyOf(destinations),
+        distances, from.length);
+  }
+
+
+  // cost from source to destination given the cost of the reverse path
+  private static double reverse(double distance, int source, int destination,
+      double[] penalties) {
+    if (penalties == null || distance == Double.MAX_VALUE) {
+      return distance;
+    }
+    return distance + penalties[destination] - penalties[source];
+  }
+
+
+  private static int[] nodes(AreaGraph graph, List<EntityID> ids) {
+    int[] nodes = new int[ids.size()];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = graph.indexOf(ids.get(i));
+    }
+    return nodes;
+  }
+
+
+  // sorted valid nodes without duplicates
+  private static int[] distinct(int[] nodes) {
+    int[] sorted = nodes.clone();
+    Arrays.sort(sorted);
+    int size = 0;
+    for (int node : sorted) {
+      if (node >= 0 && (size == 0 || sorted[size - 1] != node)) {
+        sorted[size++] = node;
+      }
+    }
+    return Arrays.copyOf(sorted, size);
+  }
+
+
+  public List<EntityID> getSources() {
+    return this.sources;
+  }
+
+
+  public List<EntityID> getDestinations() {
+    return this.destinations;
+  }
+
+
+  /**
+   * Path cost from {@code getSources().get(source)} to
+   * {@code getDestinations().get(destination)}.
+   */
+  public double getDistance(int source, int destination) {
+    return this.distances[source * this.destinations.size() + destination];
+  }
+
+
+  /**
+   * The number of Dijkstra searches the matrix cost.
+   */
+  public int getSearchCount() {
+    return this.searches;
+  }
+
+
+  /**
+   * Runs the searches of rows {@code [from, to)}. In a pool the range is
+   * split in halves down to {@code chunk} rows that share one
+   * {@link GraphSearch}.
+   */
+  private static final class SearchTask extends RecursiveAction {
+
+    private final AreaGraph graph;
+    private final double[] penalties;
+    private final int[] sources;
+    private final int[] goals;
+    private final double[][] rows;
+    private final int from;
+    private final int to;
+    private final int chunk;
+
+    SearchTask(AreaGraph graph, double[] penalties, int[] sources,
+        int[] goals, double[][] rows, int from, int to, int chunk) {
+      this.graph = graph;
+      this.penalties = penalties;
+      this.sources = sources;
+      this.goals = goals;
+      this.rows = rows;
+      this.from = from;
+      this.to = to;
+      this.chunk = chunk;
+    }
+
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from > this.chunk && inForkJoinPool()) {
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(
+            new SearchTask(this.graph, this.penalties, this.sources,
+                this.goals, this.rows, this.from, middle, this.chunk),
+            new SearchTask(this.graph, this.penalties, this.sources,
+                this.goals, this.rows, middle, this.to, this.chunk));
+        return;
+      }
+      GraphSearch search = new GraphSearch(this.graph);
+      search.setNodePenalties(this.penalties);
+      for (int i = this.from; i < this.to; i++) {
+        search.dijkstraAll(this.sources[i], this.goals, this.goals.length);
+        double[] row = new double[this.goals.length];
+        for (int j = 0; j < row.length; j++) {
+          row[j] = search.getDistance(this.goals[j]);
+        }
+        this.rows[i] = row;
+      }
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package sample_team.module.algorithm;
+
+import java.util.Arrays;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Assigns dense int indices (0..size-1) to entity IDs.
+ * <p>
+ * Lookups go through a primitive open-addressing table keyed by
+ * {@link EntityID#getValue()}, so no boxing happens on the query path.
+ */
+public final class EntityIndex {
+
+  private static final int EMPTY = -1;
+
+  private int[] keys;
+  private int[] slots;
+  private int mask;
+  private EntityID[] ids;
+  private int size;
+
+  public EntityIndex(int expectedSize) {
+    int capacity = tableSizeFor(Math.max(4, expectedSize * 2));
+    this.keys = new int[capacity];
+    this.slots = new int[capacity];
+    Arrays.fill(this.slots, EMPTY);
+    this.mask = capacity - 1;
+    this.ids = new EntityID[Math.max(4, expectedSize)];
+    this.size = 0;
+  }
+
+
+  /**
+   * Returns the index of {@code id}, adding it if it is not present yet.
+   */
+  public int add(EntityID id) {
+    int value = id.getValue();
+    int pos = mix(value) & this.mask;
+    while (this.slots[pos] != EMPTY) {
+      if (this.keys[pos] == value) {
+        return this.slots[pos];
+      }
+      pos = (pos + 1) & this.mask;
+    }
+    if (this.size == this.ids.length) {
+      this.ids = Arrays.copyOf(this.ids, this.ids.length * 2);
+    }
+    int index = this.size++;
+    this.ids[index] = id;
+    this.keys[pos] = value;
+    this.slots[pos] = index;
+    if (this.size * 2 > this.keys.length) {
+      this.rehash(this.keys.length * 2);
+    }
+    return index;
+  }
+
+
+  /**
+   * Returns the index of {@code id}, or -1 if it is not indexed.
+   */
+  public int indexOf(EntityID id) {
+    return id == null ? -1 : this.indexOf(id.getValue());
+  }
+
+
+  public int indexOf(int value) {
+    int pos = mix(value) & this.mask;
+    while (this.slots[pos] != EMPTY) {
+      if (this.keys[pos] == value) {
+        return this.slots[pos];
+      }
+      pos = (pos + 1) & this.mask;
+    }
+    return -1;
+  }
+
+
+  public EntityID get(int index) {
+    return this.ids[index];
+  }
+
+
+  public int size() {
+    return this.size;
+  }
+
+
+  private void rehash(int capacity) {
+    int[] oldKeys = this.keys;
+    int[] oldSlots = this.slots;
+    this.keys = new int[capacity];
+    this.slots = new int[capacity];
+    Arrays.fill(this.slots, EMPTY);
+    this.mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldSlots[i] == EMPTY) {
+        continue;
+      }
+      int pos = mix(oldKeys[i]) & this.mask;
+      while (this.slots[pos] != EMPTY) {
+        pos = (pos + 1) & this.mask;
+      }
+      this.keys[pos] = oldKeys[i];
+      this.slots[pos] = oldSlots[i];
+    }
+  }
+
+
+  private static int mix(int value) {
+    int h = value * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+
+  private static int tableSizeFor(int n) {
+    int capacity = Integer.highestOneBit(n - 1) << 1;
+    return Math.max(capacity, 8);
+  }
+}
@@ -10,16 +10,13 @@ import adf.core.agent.precompute.PrecomputeData;
 import adf.core.component.module.algorithm.Clustering;
 import adf.core.component.module.algorithm.StaticClustering;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 import rescuecore2.misc.Pair;
-import rescuecore2.standard.entities.Area;
-import rescuecore2.standard.entities.Blockade;
 import rescuecore2.standard.entities.Human;
 import rescuecore2.standard.entities.StandardEntity;
 import rescuecore2.standard.entities.StandardEntityURN;
@@ -50,9 +47,14 @@ public class EuclideanKMeansClustering extends StaticClustering {
 
   private int clusterSize;
   private boolean assignAgentsFlag;
+  private int parallelism;
+  private int seed;
+  private boolean initPlusPlus;
+  private boolean sharedResult;
+  private boolean boundedAssignment;
 
   // 高速化用のデータ構造
-  private Map<EntityID, Integer> entityToClusterMap;
+  private ClusterIndex clusterIndex;
   private Map<StandardEntity, Integer> centerToIndexMap;
   
   // 座標配列（高速アクセス用）
@@ -87,6 +89,17 @@ public class EuclideanKMeansClustering extends StaticClustering {
     
     this.assignAgentsFlag = developData.getBoolean(
         "sample_team.module.algorithm.KMeansClustering.assignAgentsFlag", true);
+    this.parallelism = developData.getInteger(
+        "sample_team.module.algorithm.KMeansClustering.parallelism", 1);
+    this.seed = developData.getInteger(
+        "sample_team.module.algorithm.KMeansClustering.seed", -1);
+    this.initPlusPlus = developData.getBoolean(
+        "sample_team.module.algorithm.KMeansClustering.initPlusPlus", true);
+    this.sharedResult = developData.getBoolean(
+        "sample_team.module.algorithm.KMeansClustering.sharedResult", true);
+    this.boundedAssignment = developData.getBoolean(
+        "sample_team.module.algorithm.KMeansClustering.boundedAssignment",
+        true);
 
     this.clusterEntityIDsList = new ArrayList<>();
     this.centerIDs = new ArrayList<>();
@@ -99,7 +112,6 @@ public class EuclideanKMeansClustering extends StaticClustering {
         StandardEntityURN.POLICE_OFFICE);
     
     // 高速化用のデータ構造を初期化
-    this.entityToClusterMap = new HashMap<>();
     this.centerToIndexMap = new HashMap<>();
     this.entityIndexMap = new HashMap<>();
     
@@ -210,7 +222,24 @@ public class EuclideanKMeansClustering extends StaticClustering {
     if (this.getCountPreparate() >= 2) {
       return this;
     }
-    this.calcFastEuclidean(this.repeatPreparate);
+    // 同じJVM内の同種エージェントは計算結果を共有する
+    if (this.sharedResult) {
+      String key = ClusteringResultCache.key(this.getClass(),
+          AreaGraph.of(this.worldInfo), this.agentInfo.me().getStandardURN(),
+          this.clusterSize, this.repeatPreparate, this.assignAgentsFlag,
+          this.seed, this.initPlusPlus);
+      ClusteringResultCache.Result result = ClusteringResultCache.get(key,
+          () -> {
+            this.calcFastEuclidean(this.repeatPreparate);
+            return ClusteringResultCache.Result.of(this.centerIDs,
+                this.clusterEntityIDsList);
+          });
+      this.centerIDs = result.getCenterIDs();
+      this.clusterEntityIDsList = result.getClusterEntityIDs();
+      this.clusterIndex = result.getClusterIndex();
+    } else {
+      this.calcFastEuclidean(this.repeatPreparate);
+    }
     this.entities = null;
     return this;
   }
@@ -227,16 +256,14 @@ public class EuclideanKMeansClustering extends StaticClustering {
 
   @Override
   public int getClusterIndex(EntityID id) {
-    // 最適化: O(1)でクラスタインデックスを取得
-    Integer clusterIndex = this.entityToClusterMap.get(id);
-    if (clusterIndex != null) {
-      return clusterIndex;
+    // 最適化: 配列の1回の参照でクラスタインデックスを取得
+    if (this.clusterIndex != null) {
+      return this.clusterIndex.getClusterIndex(id);
     }
     
-    // フォールバック: マップが更新されていない場合
+    // フォールバック: インデックスが未構築の場合
     for (int i = 0; i < this.clusterSize; i++) {
       if (this.clusterEntityIDsList.get(i).contains(id)) {
-        this.entityToClusterMap.put(id, i);
         return i;
       }
     }
@@ -272,8 +299,9 @@ public class EuclideanKMeansClustering extends StaticClustering {
    * KmeansPPClusteringの高速技術を採用
    */
   private void calcFastEuclidean(int repeat) {
-    Random random = new Random();
-    List<StandardEntity> entityList = new ArrayList<>(this.entities);
+    List<StandardEntity> entityList = KMeansSupport
+        .sortEntities(this.entities);
+    Random random = KMeansSupport.createRandom(entityList, this.seed);
     this.centerList = new ArrayList<>(this.clusterSize);
     this.clusterEntitiesList = new HashMap<>(this.clusterSize);
 
@@ -285,63 +313,24 @@ public class EuclideanKMeansClustering extends StaticClustering {
 
     System.out.println("[KMeansClustering] Cluster size: " + this.clusterSize);
 
-    // 初期センター選択（重複なし高速化）
-    Set<StandardEntity> usedCenters = new HashSet<>();
-    for (int index = 0; index < this.clusterSize; index++) {
-      StandardEntity centerEntity;
-      do {
-        centerEntity = entityList.get(Math.abs(random.nextInt()) % entityList.size());
-      } while (usedCenters.contains(centerEntity));
-      this.centerList.set(index, centerEntity);
-      usedCenters.add(centerEntity);
-    }
+    // 初期センター選択（k-means++、シード固定で全エージェント共通）
+    KMeansKernel kernel = KMeansSupport.createKernel(this.worldInfo,
+        entityList, this.parallelism);
+    int[] centers = KMeansSupport.initCenters(kernel, this.clusterSize,
+        this.initPlusPlus, random);
     
-    // centerToIndexMapを構築
-    this.updateCenterToIndexMap();
-    
-    // メインのクラスタリングループ
+    // メインのクラスタリングループ（割り当てと重心計算は並列化可能）
+    int[] assignment = new int[entityList.size()];
+    // 距離の上下界（Hamerly）で割り当てが変わらないエンティティを省く
+    KMeansKernel.Bounds bounds = this.boundedAssignment
+        ? kernel.createBounds(this.clusterSize)
+        : null;
     for (int iteration = 0; iteration < repeat; iteration++) {
-      this.clusterEntitiesList.clear();
-      for (int index = 0; index < this.clusterSize; index++) {
-        this.clusterEntitiesList.put(index, new ArrayList<>());
-      }
-      
       // 各エンティティを最も近いセンターに割り当て
-      for (StandardEntity entity : entityList) {
-        int nearestCenterIndex = this.getNearestCenterIndexFast(entity);
-        this.clusterEntitiesList.get(nearestCenterIndex).add(entity);
-      }
-      
-      // センターを更新
-      boolean centersChanged = false;
-      for (int index = 0; index < this.clusterSize; index++) {
-        List<StandardEntity> clusterEntities = this.clusterEntitiesList.get(index);
-        if (clusterEntities.isEmpty()) continue;
-        
-        // 重心計算
-        double sumX = 0, sumY = 0;
-        for (StandardEntity entity : clusterEntities) {
-          Integer entityIndex = this.entityIndexMap.get(entity.getID());
-          if (entityIndex != null) {
-            sumX += this.entityX[entityIndex];
-            sumY += this.entityY[entityIndex];
-          }
-        }
-        double centerX = sumX / clusterEntities.size();
-        double centerY = sumY / clusterEntities.size();
-        
-        // 重心に最も近いエンティティを新しいセンターとする
-        StandardEntity newCenter = this.getNearestEntityToPoint(clusterEntities, centerX, centerY);
-        
-        if (!newCenter.equals(this.centerList.get(index))) {
-          this.centerList.set(index, newCenter);
-          centersChanged = true;
-        }
-      }
+      kernel.assign(centers, assignment, bounds);
       
-      if (centersChanged) {
-        this.updateCenterToIndexMap();
-      }
+      // センターを重心に最も近いエンティティへ更新
+      boolean centersChanged = kernel.update(assignment, centers);
       
       // 早期収束判定
       if (!centersChanged) {
@@ -359,14 +348,16 @@ public class EuclideanKMeansClustering extends StaticClustering {
     }
 
     // 最終割り当て
+    kernel.assign(centers, assignment, bounds);
     this.clusterEntitiesList.clear();
     for (int index = 0; index < this.clusterSize; index++) {
       this.clusterEntitiesList.put(index, new ArrayList<>());
+      this.centerList.set(index, entityList.get(centers[index]));
     }
-    for (StandardEntity entity : entityList) {
-      int nearestCenterIndex = this.getNearestCenterIndexFast(entity);
-      this.clusterEntitiesList.get(nearestCenterIndex).add(entity);
+    for (int i = 0; i < entityList.size(); i++) {
+      this.clusterEntitiesList.get(assignment[i]).add(entityList.get(i));
     }
+    this.updateCenterToIndexMap();
 
     // エージェント割り当て
     if (this.assignAgentsFlag) {
@@ -377,9 +368,8 @@ public class EuclideanKMeansClustering extends StaticClustering {
       List<StandardEntity> ambulanceteamList = new ArrayList<>(
           this.worldInfo.getEntitiesOfType(StandardEntityURN.AMBULANCE_TEAM));
 
-      this.assignAgents(this.worldInfo, firebrigadeList);
-      this.assignAgents(this.worldInfo, policeforceList);
-      this.assignAgents(this.worldInfo, ambulanceteamList);
+      this.assignAgents(this.worldInfo,
+          Arrays.asList(firebrigadeList, policeforceList, ambulanceteamList));
     }
 
     // 結果の構築
@@ -401,118 +391,33 @@ public class EuclideanKMeansClustering extends StaticClustering {
   }
 
   /**
-   * 高速距離計算（平方根なし）でエンティティに最も近いセンターのインデックスを取得
+   * エージェントをクラスタに割り当てる
+   * 種別ごとに各クラスタの人数を均等（差は最大1）に保ちつつ、センターからの
+   * 直線距離の総和が最小になる割り当てをハンガリアン法で求める
    */
-  private int getNearestCenterIndexFast(StandardEntity entity) {
-    Integer entityIndex = this.entityIndexMap.get(entity.getID());
-    if (entityIndex == null) {
-      // フォールバック
-      return 0;
-    }
-    
-    double entityX = this.entityX[entityIndex];
-    double entityY = this.entityY[entityIndex];
-    
-    int nearestIndex = 0;
-    double minDistanceSquared = Double.MAX_VALUE;
-    
-    for (int i = 0; i < this.centerList.size(); i++) {
-      StandardEntity center = this.centerList.get(i);
-      Integer centerIndex = this.entityIndexMap.get(center.getID());
-      if (centerIndex != null) {
-        double centerX = this.entityX[centerIndex];
-        double centerY = this.entityY[centerIndex];
-        
-        // 平方根計算を省略（dx*dx + dy*dy）
-        double dx = entityX - centerX;
-        double dy = entityY - centerY;
-        double distanceSquared = dx * dx + dy * dy;
-        
-        if (distanceSquared < minDistanceSquared) {
-          minDistanceSquared = distanceSquared;
-          nearestIndex = i;
-        }
-      }
-    }
-    
-    return nearestIndex;
-  }
-
-  /**
-   * 指定された座標に最も近いエンティティを取得
-   */
-  private StandardEntity getNearestEntityToPoint(List<StandardEntity> entities, double targetX, double targetY) {
-    StandardEntity nearest = null;
-    double minDistanceSquared = Double.MAX_VALUE;
-    
-    for (StandardEntity entity : entities) {
-      Integer entityIndex = this.entityIndexMap.get(entity.getID());
-      if (entityIndex != null) {
-        double entityX = this.entityX[entityIndex];
-        double entityY = this.entityY[entityIndex];
-        
-        // 平方根計算を省略
-        double dx = entityX - targetX;
-        double dy = entityY - targetY;
-        double distanceSquared = dx * dx + dy * dy;
-        
-        if (distanceSquared < minDistanceSquared) {
-          minDistanceSquared = distanceSquared;
-          nearest = entity;
-        }
-      }
-    }
-    
-    return nearest != null ? nearest : entities.get(0);
-  }
-
-  private void assignAgents(WorldInfo world, List<StandardEntity> agentList) {
-    int clusterIndex = 0;
-    while (agentList.size() > 0) {
-      StandardEntity center = this.centerList.get(clusterIndex);
-      StandardEntity agent = this.getNearAgent(world, agentList, center);
-      this.clusterEntitiesList.get(clusterIndex).add(agent);
-      agentList.remove(agent);
-      clusterIndex++;
-      if (clusterIndex >= this.clusterSize) {
-        clusterIndex = 0;
-      }
-    }
-  }
-
-  private StandardEntity getNearAgent(WorldInfo worldInfo, List<StandardEntity> srcAgentList, StandardEntity targetEntity) {
-    StandardEntity result = null;
-    double minDistanceSquared = Double.MAX_VALUE;
-    
-    Integer targetIndex = this.entityIndexMap.get(targetEntity.getID());
-    if (targetIndex == null) {
-      return srcAgentList.get(0);
-    }
-    
-    double targetX = this.entityX[targetIndex];
-    double targetY = this.entityY[targetIndex];
-    
-    for (StandardEntity agent : srcAgentList) {
-      Human human = (Human) agent;
-      StandardEntity position = worldInfo.getPosition(human);
-      Integer posIndex = this.entityIndexMap.get(position.getID());
-      
-      if (posIndex != null) {
-        double posX = this.entityX[posIndex];
-        double posY = this.entityY[posIndex];
-        
-        double dx = targetX - posX;
-        double dy = targetY - posY;
-        double distanceSquared = dx * dx + dy * dy;
-        
-        if (distanceSquared < minDistanceSquared) {
-          minDistanceSquared = distanceSquared;
-          result = agent;
+  private void assignAgents(WorldInfo world,
+      List<List<StandardEntity>> agentLists) {
+    List<StandardEntity> agents = KMeansSupport.concat(agentLists);
+    double[][] cost = new double[agents.size()][this.clusterSize];
+    for (int a = 0; a < agents.size(); a++) {
+      StandardEntity position = world.getPosition((Human) agents.get(a));
+      Integer posIndex = position != null
+          ? this.entityIndexMap.get(position.getID())
+          : null;
+      for (int index = 0; index < this.clusterSize; index++) {
+        Integer centerIndex = this.entityIndexMap
+            .get(this.centerList.get(index).getID());
+        if (posIndex == null || centerIndex == null) {
+          cost[a][index] = Double.MAX_VALUE;
+          continue;
         }
+        double dx = this.entityX[centerIndex] - this.entityX[posIndex];
+        double dy = this.entityY[centerIndex] - this.entityY[posIndex];
+        cost[a][index] = Math.sqrt(dx * dx + dy * dy);
       }
     }
-    
-    return result != null ? result : srcAgentList.get(0);
+    KMeansSupport.assignAgents(agentLists, cost, this.clusterSize,
+        this.clusterEntitiesList);
   }
 
   // 最適化用のヘルパーメソッド
@@ -532,21 +437,13 @@ public class EuclideanKMeansClustering extends StaticClustering {
    */
   private void updateOptimizationMaps() {
     this.updateCenterToIndexMap();
-    this.updateEntityToClusterMap();
+    this.updateClusterIndex();
   }
   
   /**
-   * entityToClusterMapを構築する
+   * エンティティからクラスタへの索引を構築する
    */
-  private void updateEntityToClusterMap() {
-    this.entityToClusterMap.clear();
-    for (int i = 0; i < this.clusterEntityIDsList.size(); i++) {
-      List<EntityID> entities = this.clusterEntityIDsList.get(i);
-      if (entities != null) {
-        for (EntityID entityID : entities) {
-          this.entityToClusterMap.put(entityID, i);
-        }
-      }
-    }
+  private void updateClusterIndex() {
+    this.clusterIndex = ClusterIndex.build(this.clusterEntityIDsList);
   }
 }
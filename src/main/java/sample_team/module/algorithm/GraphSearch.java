@@ -0,0 +1,349 @@
+package sample_team.module.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * BFS and Dijkstra kernels over an {@link AreaGraph}.
+ * <p>
+ * All work arrays are allocated once per instance and invalidated between
+ * queries with a generation stamp, so a query allocates nothing unless a path
+ * is materialised with {@link #getPath(int)}. An instance is not thread-safe;
+ * create one per thread.
+ */
+public final class GraphSearch {
+
+  private final AreaGraph graph;
+
+  private final int[] visited;
+  private final int[] goal;
+  private final int[] parent;
+  private final int[] origin;
+  private final double[] distance;
+  private int stamp;
+
+  // BFS queue, also reused as the binary heap for Dijkstra
+  private final int[] queue;
+  private final int[] heapPosition;
+  private int heapSize;
+
+  private int source;
+  private double[] penalties;
+
+  public GraphSearch(AreaGraph graph) {
+    this.graph = graph;
+    int n = graph.size();
+    this.visited = new int[n];
+    this.goal = new int[n];
+    this.parent = new int[n];
+    this.origin = new int[n];
+    this.distance = new double[n];
+    this.queue = new int[Math.max(1, n)];
+    this.heapPosition = new int[n];
+    this.stamp = 0;
+    this.source = -1;
+  }
+
+
+  public AreaGraph getGraph() {
+    return this.graph;
+  }
+
+
+  /**
+   * Sets an extra cost that Dijkstra searches add to every edge entering a
+   * node, for example for blocked roads; {@code null} turns it off. The array
+   * is read, not copied, so later changes apply to the next search.
+   */
+  public void setNodePenalties(double[] penalties) {
+    this.penalties = penalties;
+  }
+
+
+  /**
+   * Breadth-first search from {@code source} that stops at the first of the
+   * {@code goalCount} nodes in {@code goals}. With no goals the whole
+   * component is explored. Distances are hop counts.
+   *
+   * @return the goal that was reached, or -1
+   */
+  public int bfs(int source, int[] goals, int goalCount) {
+    this.begin(source, goals, goalCount);
+    if (goalCount > 0 && this.goal[source] == this.stamp) {
+      return source;
+    }
+    int head = 0;
+    int tail = 0;
+    this.queue[tail++] = source;
+    while (head < tail) {
+      int node = this.queue[head++];
+      int first = this.graph.getFirstEdge(node);
+      int last = first + this.graph.getDegree(node);
+      for (int e = first; e < last; e++) {
+        int next = this.graph.getTarget(e);
+        if (this.visited[next] == this.stamp) {
+          continue;
+        }
+        this.visit(next, node, this.distance[node] + 1.0D);
+        if (this.goal[next] == this.stamp) {
+          return next;
+        }
+        this.queue[tail++] = next;
+      }
+    }
+    return -1;
+  }
+
+
+  /**
+   * Dijkstra search from {@code source} on the edge weights of the graph that
+   * stops when the nearest of the {@code goalCount} nodes in {@code goals} is
+   * settled. With no goals the full shortest-path tree is computed.
+   *
+   * @return the nearest goal, or -1
+   */
+  public int dijkstra(int source, int[] goals, int goalCount) {
+    this.begin(source, goals, goalCount);
+    this.heapSize = 0;
+    this.push(source);
+    return this.runDijkstra(goalCount > 0 ? 1 : 0);
+  }
+
+
+  /**
+   * Dijkstra search from {@code source} that stops once all of the
+   * {@code goalCount} nodes in {@code goals} are settled, or the component is
+   * exhausted; afterwards {@link #getDistance(int)} is exact for every goal.
+   */
+  public void dijkstraAll(int source, int[] goals, int goalCount) {
+    this.begin(source, null, 0);
+    int remaining = 0;
+    for (int i = 0; i < goalCount; i++) {
+      if (this.goal[goals[i]] != this.stamp) {
+        this.goal[goals[i]] = this.stamp;
+        remaining++;
+      }
+    }
+    this.heapSize = 0;
+    this.push(source);
+    this.runDijkstra(remaining);
+  }
+
+
+  /**
+   * Multi-source Dijkstra search that computes, in one sweep, the nearest of
+   * the {@code count} nodes in {@code sources} for every reachable node. The
+   * winner is reported by {@link #getOrigin(int)} as a position in
+   * {@code sources}, and {@link #getDistance(int)} is the distance to it.
+   */
+  public void dijkstra(int[] sources, int count) {
+    this.begin(-1, null, 0);
+    this.heapSize = 0;
+    for (int i = 0; i < count; i++) {
+      int node = sources[i];
+      if (this.visited[node] == this.stamp) {
+        continue;
+      }
+      this.visit(node, node, 0.0D);
+      this.origin[node] = i;
+      this.push(node);
+    }
+    this.runDijkstra(0);
+  }
+
+
+  // stops when stopAfter goals are settled; 0 runs to the end
+  private int runDijkstra(int stopAfter) {
+    int remaining = stopAfter;
+    while (this.heapSize > 0) {
+      int node = this.pop();
+      if (remaining > 0 && this.goal[node] == this.stamp && --remaining == 0) {
+        return node;
+      }
+      double base = this.distance[node];
+      int first = this.graph.getFirstEdge(node);
+      int last = first + this.graph.getDegree(node);
+      for (int e = first; e < last; e++) {
+        int next = this.graph.getTarget(e);
+        double d = base + this.graph.getWeight(e);
+        if (this.penalties != null) {
+          d += this.penalties[next];
+        }
+        if (this.visited[next] != this.stamp) {
+          this.visit(next, node, d);
+          this.push(next);
+        } else if (d < this.distance[next] && this.heapPosition[next] >= 0) {
+          this.distance[next] = d;
+          this.parent[next] = node;
+          this.origin[next] = this.origin[node];
+          this.siftUp(this.heapPosition[next]);
+        }
+      }
+    }
+    return -1;
+  }
+
+
+  /**
+   * Whether {@code node} was reached by the last search.
+   */
+  public boolean isReached(int node) {
+    return this.visited[node] == this.stamp;
+  }
+
+
+  /**
+   * Distance of {@code node} found by the last search, or
+   * {@link Double#MAX_VALUE} if it was not reached.
+   */
+  public double getDistance(int node) {
+    return this.visited[node] == this.stamp ? this.distance[node]
+        : Double.MAX_VALUE;
+  }
+
+
+  /**
+   * Predecessor of {@code node} in the last search tree; the source is its
+   * own parent.
+   */
+  public int getParent(int node) {
+    return this.parent[node];
+  }
+
+
+  /**
+   * For a multi-source search, the position in the source array of the
+   * source nearest to {@code node}; 0 for single-source searches.
+   */
+  public int getOrigin(int node) {
+    return this.origin[node];
+  }
+
+
+  /**
+   * Source of the last single-source search, or -1 after a multi-source
+   * search.
+   */
+  public int getSource() {
+    return this.source;
+  }
+
+
+  /**
+   * The path from the source (for a multi-source search, the nearest one) to
+   * {@code target} of the last search, both ends included, or null if
+   * {@code target} was not reached.
+   */
+  public List<EntityID> getPath(int target) {
+    if (target < 0 || !this.isReached(target)) {
+      return null;
+    }
+    int length = 1;
+    for (int node = target; this.parent[node] != node;
+        node = this.parent[node]) {
+      length++;
+    }
+    EntityID[] path = new EntityID[length];
+    int node = target;
+    for (int i = length - 1; i >= 0; i--) {
+      path[i] = this.graph.getID(node);
+      node = this.parent[node];
+    }
+    List<EntityID> result = new ArrayList<>(length);
+    for (EntityID id : path) {
+      result.add(id);
+    }
+    return result;
+  }
+
+
+  private void begin(int source, int[] goals, int goalCount) {
+    if (++this.stamp == Integer.MAX_VALUE) {
+      Arrays.fill(this.visited, 0);
+      Arrays.fill(this.goal, 0);
+      this.stamp = 1;
+    }
+    for (int i = 0; i < goalCount; i++) {
+      this.goal[goals[i]] = this.stamp;
+    }
+    this.source = source;
+    if (source >= 0) {
+      this.visit(source, source, 0.0D);
+      this.origin[source] = 0;
+    }
+  }
+
+
+  private void visit(int node, int from, double d) {
+    this.visited[node] = this.stamp;
+    this.parent[node] = from;
+    this.origin[node] = this.origin[from];
+    this.distance[node] = d;
+    this.heapPosition[node] = -1;
+  }
+
+
+  private void push(int node) {
+    int i = this.heapSize++;
+    this.queue[i] = node;
+    this.heapPosition[node] = i;
+    this.siftUp(i);
+  }
+
+
+  private int pop() {
+    int top = this.queue[0];
+    this.heapPosition[top] = -1;
+    int last = this.queue[--this.heapSize];
+    if (this.heapSize > 0) {
+      this.queue[0] = last;
+      this.heapPosition[last] = 0;
+      this.siftDown(0);
+    }
+    return top;
+  }
+
+
+  private void siftUp(int i) {
+    int node = this.queue[i];
+    double d = this.distance[node];
+    while (i > 0) {
+      int p = (i - 1) >>> 1;
+      int up = this.queue[p];
+      if (this.distance[up] <= d) {
+        break;
+      }
+      this.queue[i] = up;
+      this.heapPosition[up] = i;
+      i = p;
+    }
+    this.queue[i] = node;
+    this.heapPosition[node] = i;
+  }
+
+
+  private void siftDown(int i) {
+    int node = this.queue[i];
+    double d = this.distance[node];
+    int half = this.heapSize >>> 1;
+    while (i < half) {
+      int c = 2 * i + 1;
+      int right = c + 1;
+      if (right < this.heapSize
+          && this.distance[this.queue[right]] < this.distance[this.queue[c]]) {
+        c = right;
+      }
+      int child = this.queue[c];
+      if (d <= this.distance[child]) {
+        break;
+      }
+      this.queue[i] = child;
+      this.heapPosition[child] = i;
+      i = c;
+    }
+    this.queue[i] = node;
+    this.heapPosition[node] = i;
+  }
+}
@@ -13,14 +13,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 import rescuecore2.misc.Pair;
-import rescuecore2.misc.collections.LazyMap;
 import rescuecore2.misc.geometry.Point2D;
 import rescuecore2.standard.entities.Area;
 import rescuecore2.standard.entities.Blockade;
@@ -28,7 +24,6 @@ import rescuecore2.standard.entities.Edge;
 import rescuecore2.standard.entities.Human;
 import rescuecore2.standard.entities.StandardEntity;
 import rescuecore2.standard.entities.StandardEntityURN;
-import rescuecore2.worldmodel.Entity;
 import rescuecore2.worldmodel.EntityID;
 
 import adf.core.debug.DefaultLogger;
@@ -56,14 +51,21 @@ public class HashKMeansClustering extends StaticClustering {
   private int clusterSize;
 
   private boolean assignAgentsFlag;
-
-  private Map<EntityID, Set<EntityID>> shortestPathGraph;
+  private boolean voronoiAssignment;
+  private int parallelism;
+  private int seed;
+  private boolean initPlusPlus;
+  private boolean sharedResult;
+  private long preparateTimeBudget;
+
+  private AreaGraph shortestPathGraph;
+  private GraphSearch shortestPathSearch;
+  private int[] shortestPathGoals;
   
   // 最適化用のキャッシュとマップ
-  private Map<EntityID, Integer> entityToClusterMap;
+  private ClusterIndex clusterIndex;
   private Map<StandardEntity, Integer> centerToIndexMap;
-  private Map<String, Double> distanceCache;
-  private Map<String, List<EntityID>> pathCache;
+  private LongDoubleCache distanceCache;
 
   public HashKMeansClustering(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
     super(ai, wi, si, moduleManager, developData);
@@ -88,6 +90,21 @@ public class HashKMeansClustering extends StaticClustering {
     }
     this.assignAgentsFlag = developData.getBoolean(
         "sample_team.module.algorithm.KMeansClustering.assignAgentsFlag", true);
+    this.voronoiAssignment = developData.getBoolean(
+        "sample_team.module.algorithm.KMeansClustering.voronoiAssignment", true);
+    this.parallelism = developData.getInteger(
+        "sample_team.module.algorithm.KMeansClustering.parallelism", 1);
+    this.seed = developData.getInteger(
+        "sample_team.module.algorithm.KMeansClustering.seed", -1);
+    this.initPlusPlus = developData.getBoolean(
+        "sample_team.module.algorithm.KMeansClustering.initPlusPlus", true);
+    this.sharedResult = developData.getBoolean(
+        "sample_team.module.algorithm.KMeansClustering.sharedResult", true);
+    this.preparateTimeBudget = developData.getInteger(
+        "sample_team.module.algorithm.KMeansClustering.preparateTimeBudget", 0);
+    int distanceCacheCapacity = developData.getInteger(
+        "sample_team.module.algorithm.KMeansClustering.distanceCacheCapacity",
+        1 << 20);
     this.clusterEntityIDsList = new ArrayList<>();
     this.centerIDs = new ArrayList<>();
     this.clusterEntitiesList = new HashMap<>();
@@ -99,10 +116,11 @@ public class HashKMeansClustering extends StaticClustering {
         StandardEntityURN.POLICE_OFFICE);
     
     // 最適化用のデータ構造を初期化
-    this.entityToClusterMap = new HashMap<>();
     this.centerToIndexMap = new HashMap<>();
-    this.distanceCache = new HashMap<>();
-    this.pathCache = new HashMap<>();
+    // 経路距離のキャッシュはボロノイ割り当てを使わない場合のみ参照される
+    if (!this.voronoiAssignment) {
+      this.distanceCache = new LongDoubleCache(distanceCacheCapacity);
+    }
   }
 
 
@@ -115,8 +133,9 @@ public class HashKMeansClustering extends StaticClustering {
     this.centerList.clear();
     this.clusterEntitiesList.clear();
     this.centerToIndexMap.clear();
-    this.distanceCache.clear();
-    this.pathCache.clear();
+    if (this.distanceCache != null) {
+      this.distanceCache.clear();
+    }
     return this;
   }
 
@@ -129,6 +148,9 @@ public class HashKMeansClustering extends StaticClustering {
     }
     this.calcPathBased(this.repeatPrecompute);
     this.entities = null;
+    if (this.distanceCache != null) {
+      logger.debug("distanceCache: " + this.distanceCache);
+    }
     // write
     precomputeData.setInteger(KEY_CLUSTER_SIZE, this.clusterSize);
     precomputeData.setEntityIDList(KEY_CLUSTER_CENTER, this.centerIDs);
@@ -191,8 +213,28 @@ public class HashKMeansClustering extends StaticClustering {
     if (this.getCountPreparate() >= 2) {
       return this;
     }
-    this.calcStandard(this.repeatPreparate);
+    // 同じJVM内の同種エージェントは計算結果を共有する
+    if (this.sharedResult) {
+      String key = ClusteringResultCache.key(this.getClass(),
+          AreaGraph.of(this.worldInfo), this.agentInfo.me().getStandardURN(),
+          this.clusterSize, this.repeatPreparate, this.assignAgentsFlag,
+          this.seed, this.initPlusPlus, this.preparateTimeBudget);
+      ClusteringResultCache.Result result = ClusteringResultCache.get(key,
+          () -> {
+            this.calcStandard(this.repeatPreparate);
+            return ClusteringResultCache.Result.of(this.centerIDs,
+                this.clusterEntityIDsList);
+          });
+      this.centerIDs = result.getCenterIDs();
+      this.clusterEntityIDsList = result.getClusterEntityIDs();
+      this.clusterIndex = result.getClusterIndex();
+    } else {
+      this.calcStandard(this.repeatPreparate);
+    }
     this.entities = null;
+    if (this.distanceCache != null) {
+      logger.debug("distanceCache: " + this.distanceCache);
+    }
     return this;
   }
 
@@ -212,16 +254,14 @@ public class HashKMeansClustering extends StaticClustering {
 
   @Override
   public int getClusterIndex(EntityID id) {
-    // 最適化: O(1)でクラスタインデックスを取得
-    Integer clusterIndex = this.entityToClusterMap.get(id);
-    if (clusterIndex != null) {
-      return clusterIndex;
+    // 最適化: 配列の1回の参照でクラスタインデックスを取得
+    if (this.clusterIndex != null) {
+      return this.clusterIndex.getClusterIndex(id);
     }
     
-    // フォールバック: マップが更新されていない場合
+    // フォールバック: インデックスが未構築の場合
     for (int i = 0; i < this.clusterSize; i++) {
       if (this.clusterEntityIDsList.get(i).contains(id)) {
-        this.entityToClusterMap.put(id, i);
         return i;
       }
     }
@@ -258,9 +298,10 @@ public class HashKMeansClustering extends StaticClustering {
 
   private void calcStandard(int repeat) {
     this.initShortestPath(this.worldInfo);
-    Random random = new Random();
 
-    List<StandardEntity> entityList = new ArrayList<>(this.entities);
+    List<StandardEntity> entityList = KMeansSupport
+        .sortEntities(this.entities);
+    Random random = KMeansSupport.createRandom(entityList, this.seed);
     this.centerList = new ArrayList<>(this.clusterSize);
     this.clusterEntitiesList = new HashMap<>(this.clusterSize);
 
@@ -272,93 +313,33 @@ public class HashKMeansClustering extends StaticClustering {
     System.out.println("[" + this.getClass().getSimpleName() + "] Cluster : "
         + this.clusterSize);
     
-    // init center - 最適化: Set使用で重複チェックを高速化
-    Set<StandardEntity> usedCenters = new HashSet<>();
-    for (int index = 0; index < this.clusterSize; index++) {
-      StandardEntity centerEntity;
-      do {
-        centerEntity = entityList
-            .get(Math.abs(random.nextInt()) % entityList.size());
-      } while (usedCenters.contains(centerEntity));
-      this.centerList.set(index, centerEntity);
-      usedCenters.add(centerEntity);
-    }
-    
-    // centerToIndexMapを構築
-    this.updateCenterToIndexMap();
+    // init center - k-means++（シード固定で全エージェント共通）
+    KMeansKernel kernel = KMeansSupport.createKernel(this.worldInfo,
+        entityList, this.parallelism);
+    int[] centers = KMeansSupport.initCenters(kernel, this.clusterSize,
+        this.initPlusPlus, random);
     
-    // calc center
-    for (int i = 0; i < repeat; i++) {
-      this.clusterEntitiesList.clear();
-      for (int index = 0; index < this.clusterSize; index++) {
-        this.clusterEntitiesList.put(index, new ArrayList<>());
-      }
-      for (StandardEntity entity : entityList) {
-        StandardEntity tmp = this.getNearEntityByLine(this.worldInfo,
-            this.centerList, entity);
-        Integer clusterIndex = this.centerToIndexMap.get(tmp);
-        if (clusterIndex != null) {
-          this.clusterEntitiesList.get(clusterIndex).add(entity);
-        }
-      }
-      
-      boolean centersChanged = false;
-      for (int index = 0; index < this.clusterSize; index++) {
-        List<StandardEntity> clusterEntities = this.clusterEntitiesList.get(index);
-        if (clusterEntities.isEmpty()) continue;
-        
-        int sumX = 0, sumY = 0;
-        for (StandardEntity entity : clusterEntities) {
-          Pair<Integer, Integer> location = this.worldInfo.getLocation(entity);
-          sumX += location.first();
-          sumY += location.second();
-        }
-        int centerX = sumX / clusterEntities.size();
-        int centerY = sumY / clusterEntities.size();
-        StandardEntity center = this.getNearEntityByLine(this.worldInfo,
-            clusterEntities, centerX, centerY);
-        
-        StandardEntity newCenter = center;
-        if (center instanceof Area) {
-          newCenter = center;
-        } else if (center instanceof Human) {
-          newCenter = this.worldInfo.getEntity(((Human) center).getPosition());
-        } else if (center instanceof Blockade) {
-          newCenter = this.worldInfo.getEntity(((Blockade) center).getPosition());
-        }
-        
-        if (!newCenter.equals(this.centerList.get(index))) {
-          this.centerList.set(index, newCenter);
-          centersChanged = true;
-        }
-      }
-      
-      if (centersChanged) {
-        this.updateCenterToIndexMap();
-      }
-      
-      if (scenarioInfo.isDebugMode()) {
-        System.out.print("*");
-      }
-    }
-
-    if (scenarioInfo.isDebugMode()) {
-      System.out.println();
-    }
+    // calc center - 割り当てと重心計算は座標配列上で行う（並列化可能）
+    // 時間予算がある場合は回数ではなく収束か期限まで反復し、最良のセンターを残す
+    long start = System.nanoTime();
+    int[] assignment = new int[entityList.size()];
+    int iterations = KMeansSupport.optimize(kernel, centers, assignment,
+        repeat, this.preparateTimeBudget, scenarioInfo.isDebugMode());
+    logger.info("preparate: " + iterations + " iterations in "
+        + (System.nanoTime() - start) / 1000000L + " ms");
 
     // set entity
     this.clusterEntitiesList.clear();
     for (int index = 0; index < this.clusterSize; index++) {
       this.clusterEntitiesList.put(index, new ArrayList<>());
+      this.centerList.set(index, entityList.get(centers[index]));
     }
-    for (StandardEntity entity : entityList) {
-      StandardEntity tmp = this.getNearEntityByLine(this.worldInfo,
-          this.centerList, entity);
-      Integer clusterIndex = this.centerToIndexMap.get(tmp);
-      if (clusterIndex != null) {
-        this.clusterEntitiesList.get(clusterIndex).add(entity);
-      }
+    for (int i = 0; i < entityList.size(); i++) {
+      this.clusterEntitiesList.get(assignment[i]).add(entityList.get(i));
     }
+    
+    // centerToIndexMapを構築
+    this.updateCenterToIndexMap();
 
     // this.clusterEntitiesList.sort(comparing(List::size, reverseOrder()));
 
@@ -370,9 +351,8 @@ public class HashKMeansClustering extends StaticClustering {
       List<StandardEntity> ambulanceteamList = new ArrayList<>(
           this.worldInfo.getEntitiesOfType(StandardEntityURN.AMBULANCE_TEAM));
 
-      this.assignAgents(this.worldInfo, firebrigadeList);
-      this.assignAgents(this.worldInfo, policeforceList);
-      this.assignAgents(this.worldInfo, ambulanceteamList);
+      this.assignAgents(this.worldInfo,
+          Arrays.asList(firebrigadeList, policeforceList, ambulanceteamList));
     }
 
     this.centerIDs = new ArrayList<>();
@@ -395,8 +375,9 @@ public class HashKMeansClustering extends StaticClustering {
 
   private void calcPathBased(int repeat) {
     this.initShortestPath(this.worldInfo);
-    Random random = new Random();
-    List<StandardEntity> entityList = new ArrayList<>(this.entities);
+    List<StandardEntity> entityList = KMeansSupport
+        .sortEntities(this.entities);
+    Random random = KMeansSupport.createRandom(entityList, this.seed);
     this.centerList = new ArrayList<>(this.clusterSize);
     this.clusterEntitiesList = new HashMap<>(this.clusterSize);
 
@@ -405,16 +386,12 @@ public class HashKMeansClustering extends StaticClustering {
       this.centerList.add(index, entityList.get(0));
     }
     
-    // init center - 最適化: Set使用で重複チェックを高速化
-    Set<StandardEntity> usedCenters = new HashSet<>();
+    // init center - k-means++（シード固定で全エージェント共通）
+    int[] centers = KMeansSupport.initCenters(KMeansSupport.createKernel(
+        this.worldInfo, entityList, this.parallelism), this.clusterSize,
+        this.initPlusPlus, random);
     for (int index = 0; index < this.clusterSize; index++) {
-      StandardEntity centerEntity;
-      do {
-        centerEntity = entityList
-            .get(Math.abs(random.nextInt()) % entityList.size());
-      } while (usedCenters.contains(centerEntity));
-      this.centerList.set(index, centerEntity);
-      usedCenters.add(centerEntity);
+      this.centerList.set(index, entityList.get(centers[index]));
     }
     
     // centerToIndexMapを構築
@@ -425,14 +402,7 @@ public class HashKMeansClustering extends StaticClustering {
       for (int index = 0; index < this.clusterSize; index++) {
         this.clusterEntitiesList.put(index, new ArrayList<>());
       }
-      for (StandardEntity entity : entityList) {
-        StandardEntity tmp = this.getNearEntity(this.worldInfo, this.centerList,
-            entity);
-        Integer clusterIndex = this.centerToIndexMap.get(tmp);
-        if (clusterIndex != null) {
-          this.clusterEntitiesList.get(clusterIndex).add(entity);
-        }
-      }
+      this.assignByPath(entityList);
       
       boolean centersChanged = false;
       for (int index = 0; index < this.clusterSize; index++) {
@@ -475,6 +445,10 @@ public class HashKMeansClustering extends StaticClustering {
       if (scenarioInfo.isDebugMode()) {
         System.out.print("*");
       }
+      // 早期収束判定
+      if (!centersChanged) {
+        break;
+      }
     }
 
     if (scenarioInfo.isDebugMode()) {
@@ -485,14 +459,7 @@ public class HashKMeansClustering extends StaticClustering {
     for (int index = 0; index < this.clusterSize; index++) {
       this.clusterEntitiesList.put(index, new ArrayList<>());
     }
-    for (StandardEntity entity : entityList) {
-      StandardEntity tmp = this.getNearEntity(this.worldInfo, this.centerList,
-          entity);
-      Integer clusterIndex = this.centerToIndexMap.get(tmp);
-      if (clusterIndex != null) {
-        this.clusterEntitiesList.get(clusterIndex).add(entity);
-      }
-    }
+    this.assignByPath(entityList);
     // this.clusterEntitiesList.sort(comparing(List::size, reverseOrder()));
     if (this.assignAgentsFlag) {
       List<StandardEntity> fireBrigadeList = new ArrayList<>(
@@ -501,9 +468,8 @@ public class HashKMeansClustering extends StaticClustering {
           this.worldInfo.getEntitiesOfType(StandardEntityURN.POLICE_FORCE));
       List<StandardEntity> ambulanceTeamList = new ArrayList<>(
           this.worldInfo.getEntitiesOfType(StandardEntityURN.AMBULANCE_TEAM));
-      this.assignAgents(this.worldInfo, fireBrigadeList);
-      this.assignAgents(this.worldInfo, policeForceList);
-      this.assignAgents(this.worldInfo, ambulanceTeamList);
+      this.assignAgents(this.worldInfo,
+          Arrays.asList(fireBrigadeList, policeForceList, ambulanceTeamList));
     }
 
     this.centerIDs = new ArrayList<>();
@@ -524,21 +490,68 @@ public class HashKMeansClustering extends StaticClustering {
   }
 
 
-  private void assignAgents(WorldInfo world, List<StandardEntity> agentList) {
-    int clusterIndex = 0;
-    while (agentList.size() > 0) {
-      StandardEntity center = this.centerList.get(clusterIndex);
-      StandardEntity agent = this.getNearAgent(world, agentList, center);
-      this.clusterEntitiesList.get(clusterIndex).add(agent);
-      agentList.remove(agent);
-      clusterIndex++;
-      if (clusterIndex >= this.clusterSize) {
-        clusterIndex = 0;
+  /**
+   * 各エンティティを経路距離で最も近いセンターのクラスタに割り当てる
+   */
+  private void assignByPath(List<StandardEntity> entityList) {
+    if (!this.voronoiAssignment) {
+      for (StandardEntity entity : entityList) {
+        StandardEntity tmp = this.getNearEntity(this.worldInfo, this.centerList,
+            entity);
+        Integer clusterIndex = this.centerToIndexMap.get(tmp);
+        if (clusterIndex != null) {
+          this.clusterEntitiesList.get(clusterIndex).add(entity);
+        }
+      }
+      return;
+    }
+    // 全センターからの多始点探索1回で各エリアの最寄りセンターを求める
+    int[] sources = new int[this.clusterSize];
+    int[] sourceClusters = new int[this.clusterSize];
+    int count = 0;
+    for (int index = 0; index < this.clusterSize; index++) {
+      int node = this.shortestPathGraph
+          .indexOf(this.centerList.get(index).getID());
+      if (node >= 0) {
+        sources[count] = node;
+        sourceClusters[count++] = index;
+      }
+    }
+    this.shortestPathSearch.dijkstra(sources, count);
+    for (StandardEntity entity : entityList) {
+      int node = this.shortestPathGraph.indexOf(entity.getID());
+      Integer clusterIndex;
+      if (node >= 0 && this.shortestPathSearch.isReached(node)) {
+        clusterIndex = sourceClusters[this.shortestPathSearch.getOrigin(node)];
+      } else {
+        // 到達不能な場合は直線距離で判定
+        StandardEntity tmp = this.getNearEntityByLine(this.worldInfo,
+            this.centerList, entity);
+        clusterIndex = this.centerToIndexMap.get(tmp);
+      }
+      if (clusterIndex != null) {
+        this.clusterEntitiesList.get(clusterIndex).add(entity);
       }
     }
   }
 
 
+  /**
+   * エージェントをクラスタに割り当てる
+   * 各クラスタの人数を均等（差は最大1）に保ちつつ、センターからの経路距離の
+   * 総和が最小になる割り当てをハンガリアン法で求める。距離はセンターごとに
+   * 1回のダイクストラ探索で全種別分を得る
+   */
+  private void assignAgents(WorldInfo world,
+      List<List<StandardEntity>> agentLists) {
+    double[][] cost = KMeansSupport.pathCost(world,
+        KMeansSupport.concat(agentLists), this.centerList,
+        this.shortestPathGraph, this.shortestPathSearch);
+    KMeansSupport.assignAgents(agentLists, cost, this.clusterSize,
+        this.clusterEntitiesList);
+  }
+
+
   private StandardEntity getNearEntityByLine(WorldInfo world,
       List<StandardEntity> srcEntityList, StandardEntity targetEntity) {
     Pair<Integer, Integer> location = world.getLocation(targetEntity);
@@ -559,26 +572,6 @@ public class HashKMeansClustering extends StaticClustering {
   }
 
 
-  private StandardEntity getNearAgent(WorldInfo worldInfo,
-      List<StandardEntity> srcAgentList, StandardEntity targetEntity) {
-    StandardEntity result = null;
-    for (StandardEntity agent : srcAgentList) {
-      Human human = (Human) agent;
-      if (result == null) {
-        result = agent;
-      } else {
-        if (this
-            .comparePathDistance(worldInfo, targetEntity, result,
-                worldInfo.getPosition(human))
-            .equals(worldInfo.getPosition(human))) {
-          result = agent;
-        }
-      }
-    }
-    return result;
-  }
-
-
   private StandardEntity getNearEntity(WorldInfo worldInfo,
       List<StandardEntity> srcEntityList, int targetX, int targetY) {
     StandardEntity result = null;
@@ -654,28 +647,35 @@ public class HashKMeansClustering extends StaticClustering {
 
   private StandardEntity comparePathDistance(WorldInfo worldInfo,
       StandardEntity target, StandardEntity first, StandardEntity second) {
-    // キャッシュキーを生成
-    String firstKey = target.getID() + "-" + first.getID();
-    String secondKey = target.getID() + "-" + second.getID();
-    
-    Double firstDistance = this.distanceCache.get(firstKey);
-    if (firstDistance == null) {
-      firstDistance = getPathDistance(worldInfo,
-          shortestPath(target.getID(), first.getID()));
-      this.distanceCache.put(firstKey, firstDistance);
-    }
-    
-    Double secondDistance = this.distanceCache.get(secondKey);
-    if (secondDistance == null) {
-      secondDistance = getPathDistance(worldInfo,
-          shortestPath(target.getID(), second.getID()));
-      this.distanceCache.put(secondKey, secondDistance);
-    }
-    
+    double firstDistance = this.getCachedPathDistance(worldInfo, target,
+        first);
+    double secondDistance = this.getCachedPathDistance(worldInfo, target,
+        second);
     return (firstDistance < secondDistance ? first : second);
   }
 
 
+  /**
+   * 経路距離をグラフのインデックス対をキーとしてキャッシュする
+   */
+  private double getCachedPathDistance(WorldInfo worldInfo,
+      StandardEntity from, StandardEntity to) {
+    int fromIndex = this.shortestPathGraph.indexOf(from.getID());
+    int toIndex = this.shortestPathGraph.indexOf(to.getID());
+    if (fromIndex < 0 || toIndex < 0) {
+      return getPathDistance(worldInfo, shortestPath(from.getID(), to.getID()));
+    }
+    long key = LongDoubleCache.key(fromIndex, toIndex);
+    double distance = this.distanceCache.get(key);
+    if (Double.isNaN(distance)) {
+      distance = getPathDistance(worldInfo,
+          shortestPath(from.getID(), to.getID()));
+      this.distanceCache.put(key, distance);
+    }
+    return distance;
+  }
+
+
   private double getPathDistance(WorldInfo worldInfo, List<EntityID> path) {
     if (path == null)
       return Double.MAX_VALUE;
@@ -702,27 +702,9 @@ public class HashKMeansClustering extends StaticClustering {
 
 
   private void initShortestPath(WorldInfo worldInfo) {
-    Map<EntityID,
-        Set<EntityID>> neighbours = new LazyMap<EntityID, Set<EntityID>>() {
-
-          @Override
-          public Set<EntityID> createValue() {
-            return new HashSet<>();
-          }
-        };
-    for (Entity next : worldInfo) {
-      if (next instanceof Area) {
-        Collection<EntityID> areaNeighbours = ((Area) next).getNeighbours();
-        neighbours.get(next.getID()).addAll(areaNeighbours);
-      }
-    }
-    for (Map.Entry<EntityID, Set<EntityID>> graph : neighbours.entrySet()) {// fix
-                                                                            // graph
-      for (EntityID entityID : graph.getValue()) {
-        neighbours.get(entityID).add(graph.getKey());
-      }
-    }
-    this.shortestPathGraph = neighbours;
+    this.shortestPathGraph = AreaGraph.of(worldInfo);
+    this.shortestPathSearch = new GraphSearch(this.shortestPathGraph);
+    this.shortestPathGoals = new int[1];
   }
 
 
@@ -733,66 +715,31 @@ public class HashKMeansClustering extends StaticClustering {
 
   private List<EntityID> shortestPath(EntityID start,
       Collection<EntityID> goals) {
-    // キャッシュキーを生成（start + goalsのハッシュ）
-    String cacheKey = start.toString() + "-" + goals.hashCode();
-    List<EntityID> cachedPath = this.pathCache.get(cacheKey);
-    if (cachedPath != null) {
-      return cachedPath;
-    }
-    
-    List<EntityID> open = new LinkedList<>();
-    Map<EntityID, EntityID> ancestors = new HashMap<>();
-    open.add(start);
-    EntityID next;
-    boolean found = false;
-    ancestors.put(start, start);
-    do {
-      next = open.remove(0);
-      if (isGoal(next, goals)) {
-        found = true;
-        break;
-      }
-      Collection<EntityID> neighbours = shortestPathGraph.get(next);
-      if (neighbours.isEmpty())
-        continue;
-
-      for (EntityID neighbour : neighbours) {
-        if (isGoal(neighbour, goals)) {
-          ancestors.put(neighbour, next);
-          next = neighbour;
-          found = true;
-          break;
-        } else if (!ancestors.containsKey(neighbour)) {
-          open.add(neighbour);
-          ancestors.put(neighbour, next);
-        }
+    int source = this.shortestPathGraph.indexOf(start);
+    if (this.shortestPathGoals.length < goals.size()) {
+      this.shortestPathGoals = new int[goals.size()];
+    }
+    int goalCount = 0;
+    for (EntityID goal : goals) {
+      int node = this.shortestPathGraph.indexOf(goal);
+      if (node >= 0) {
+        this.shortestPathGoals[goalCount++] = node;
       }
-    } while (!found && !open.isEmpty());
-    if (!found) {
+    }
+    int found = (source >= 0 && goalCount > 0)
+        ? this.shortestPathSearch.bfs(source, this.shortestPathGoals, goalCount)
+        : -1;
+    if (found < 0) {
       // No path
-      this.pathCache.put(cacheKey, null);
       return null;
     }
-    // Walk back from goal to start
-    EntityID current = next;
-    List<EntityID> path = new LinkedList<>();
-    do {
-      path.add(0, current);
-      current = ancestors.get(current);
-      if (current == null)
-        throw new RuntimeException(
-            "Found a node with no ancestor! Something is broken.");
-    } while (current != start);
-    
-    // 結果をキャッシュに保存
-    this.pathCache.put(cacheKey, path);
+    // The start is left out of the path unless it is the goal itself
+    List<EntityID> path = this.shortestPathSearch.getPath(found);
+    if (path.size() > 1) {
+      path.remove(0);
+    }
     return path;
   }
-
-
-  private boolean isGoal(EntityID e, Collection<EntityID> test) {
-    return test.contains(e);
-  }
   
   // 最適化用のヘルパーメソッド
   
@@ -811,21 +758,13 @@ public class HashKMeansClustering extends StaticClustering {
    */
   private void updateOptimizationMaps() {
     this.updateCenterToIndexMap();
-    this.updateEntityToClusterMap();
+    this.updateClusterIndex();
   }
   
   /**
-   * entityToClusterMapを構築する
+   * エンティティからクラスタへの索引を構築する
    */
-  private void updateEntityToClusterMap() {
-    this.entityToClusterMap.clear();
-    for (int i = 0; i < this.clusterEntityIDsList.size(); i++) {
-      List<EntityID> entities = this.clusterEntityIDsList.get(i);
-      if (entities != null) {
-        for (EntityID entityID : entities) {
-          this.entityToClusterMap.put(entityID, i);
-        }
-      }
-    }
+  private void updateClusterIndex() {
+    this.clusterIndex = ClusterIndex.build(this.clusterEntityIDsList);
   }
 }
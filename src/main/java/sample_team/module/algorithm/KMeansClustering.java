@@ -13,14 +13,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 import rescuecore2.misc.Pair;
-import rescuecore2.misc.collections.LazyMap;
 import rescuecore2.misc.geometry.Point2D;
 import rescuecore2.standard.entities.Area;
 import rescuecore2.standard.entities.Blockade;
@@ -28,7 +24,6 @@ import rescuecore2.standard.entities.Edge;
 import rescuecore2.standard.entities.Human;
 import rescuecore2.standard.entities.StandardEntity;
 import rescuecore2.standard.entities.StandardEntityURN;
-import rescuecore2.worldmodel.Entity;
 import rescuecore2.worldmodel.EntityID;
 
 import adf.core.debug.DefaultLogger;
@@ -56,8 +51,18 @@ public class KMeansClustering extends StaticClustering {
   private int clusterSize;
 
   private boolean assignAgentsFlag;
+  private boolean voronoiAssignment;
+  private int parallelism;
+  private int seed;
+  private boolean initPlusPlus;
+  private boolean sharedResult;
+  private long preparateTimeBudget;
 
-  private Map<EntityID, Set<EntityID>> shortestPathGraph;
+  private ClusterIndex clusterIndex;
+
+  private AreaGraph shortestPathGraph;
+  private GraphSearch shortestPathSearch;
+  private int[] shortestPathGoals;
 
   public KMeansClustering(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
     super(ai, wi, si, moduleManager, developData);
@@ -80,6 +85,18 @@ public class KMeansClustering extends StaticClustering {
     }
     this.assignAgentsFlag = developData.getBoolean(
         "adf.impl.module.algorithm.KMeansClustering.assignAgentsFlag", true);
+    this.voronoiAssignment = developData.getBoolean(
+        "adf.impl.module.algorithm.KMeansClustering.voronoiAssignment", true);
+    this.parallelism = developData.getInteger(
+        "adf.impl.module.algorithm.KMeansClustering.parallelism", 1);
+    this.seed = developData.getInteger(
+        "adf.impl.module.algorithm.KMeansClustering.seed", -1);
+    this.initPlusPlus = developData.getBoolean(
+        "adf.impl.module.algorithm.KMeansClustering.initPlusPlus", true);
+    this.sharedResult = developData.getBoolean(
+        "adf.impl.module.algorithm.KMeansClustering.sharedResult", true);
+    this.preparateTimeBudget = developData.getInteger(
+        "adf.impl.module.algorithm.KMeansClustering.preparateTimeBudget", 0);
     this.clusterEntityIDsList = new ArrayList<>();
     this.centerIDs = new ArrayList<>();
     this.clusterEntitiesList = new HashMap<>();
@@ -121,6 +138,8 @@ public class KMeansClustering extends StaticClustering {
     }
     precomputeData.setBoolean(KEY_ASSIGN_AGENT, this.assignAgentsFlag);
 
+    this.clusterIndex = ClusterIndex.build(this.clusterEntityIDsList);
+
     //debug
     for(int i = 1; i < this.getClusterNumber() + 1; i++) {
         Collection<EntityID> myClusterEntities = this.getClusterEntityIDs(i-1);
@@ -147,6 +166,7 @@ public class KMeansClustering extends StaticClustering {
           precomputeData.getEntityIDList(KEY_CLUSTER_ENTITY + i));
     }
     this.assignAgentsFlag = precomputeData.getBoolean(KEY_ASSIGN_AGENT);
+    this.clusterIndex = ClusterIndex.build(this.clusterEntityIDsList);
     return this;
   }
 
@@ -157,7 +177,25 @@ public class KMeansClustering extends StaticClustering {
     if (this.getCountPreparate() >= 2) {
       return this;
     }
-    this.calcStandard(this.repeatPreparate);
+    // agents of the same type in this JVM share one computation
+    if (this.sharedResult) {
+      String key = ClusteringResultCache.key(this.getClass(),
+          AreaGraph.of(this.worldInfo), this.agentInfo.me().getStandardURN(),
+          this.clusterSize, this.repeatPreparate, this.assignAgentsFlag,
+          this.seed, this.initPlusPlus, this.preparateTimeBudget);
+      ClusteringResultCache.Result result = ClusteringResultCache.get(key,
+          () -> {
+            this.calcStandard(this.repeatPreparate);
+            return ClusteringResultCache.Result.of(this.centerIDs,
+                this.clusterEntityIDsList);
+          });
+      this.centerIDs = result.getCenterIDs();
+      this.clusterEntityIDsList = result.getClusterEntityIDs();
+      this.clusterIndex = result.getClusterIndex();
+    } else {
+      this.calcStandard(this.repeatPreparate);
+      this.clusterIndex = ClusterIndex.build(this.clusterEntityIDsList);
+    }
     this.entities = null;
     return this;
   }
@@ -178,6 +216,9 @@ public class KMeansClustering extends StaticClustering {
 
   @Override
   public int getClusterIndex(EntityID id) {
+    if (this.clusterIndex != null) {
+      return this.clusterIndex.getClusterIndex(id);
+    }
     for (int i = 0; i < this.clusterSize; i++) {
       if (this.clusterEntityIDsList.get(i).contains(id)) {
         return i;
@@ -216,9 +257,10 @@ public class KMeansClustering extends StaticClustering {
 
   private void calcStandard(int repeat) {
     this.initShortestPath(this.worldInfo);
-    Random random = new Random();
 
-    List<StandardEntity> entityList = new ArrayList<>(this.entities);
+    List<StandardEntity> entityList = KMeansSupport
+        .sortEntities(this.entities);
+    Random random = KMeansSupport.createRandom(entityList, this.seed);
     this.centerList = new ArrayList<>(this.clusterSize);
     this.clusterEntitiesList = new HashMap<>(this.clusterSize);
 
@@ -230,64 +272,27 @@ public class KMeansClustering extends StaticClustering {
     System.out.println("[" + this.getClass().getSimpleName() + "] Cluster : "
         + this.clusterSize);
     // init center
-    for (int index = 0; index < this.clusterSize; index++) {
-      StandardEntity centerEntity;
-      do {
-        centerEntity = entityList
-            .get(Math.abs(random.nextInt()) % entityList.size());
-      } while (this.centerList.contains(centerEntity));
-      this.centerList.set(index, centerEntity);
-    }
-    // calc center
-    for (int i = 0; i < repeat; i++) {
-      this.clusterEntitiesList.clear();
-      for (int index = 0; index < this.clusterSize; index++) {
-        this.clusterEntitiesList.put(index, new ArrayList<>());
-      }
-      for (StandardEntity entity : entityList) {
-        StandardEntity tmp = this.getNearEntityByLine(this.worldInfo,
-            this.centerList, entity);
-        this.clusterEntitiesList.get(this.centerList.indexOf(tmp)).add(entity);
-      }
-      for (int index = 0; index < this.clusterSize; index++) {
-        int sumX = 0, sumY = 0;
-        for (StandardEntity entity : this.clusterEntitiesList.get(index)) {
-          Pair<Integer, Integer> location = this.worldInfo.getLocation(entity);
-          sumX += location.first();
-          sumY += location.second();
-        }
-        int centerX = sumX / this.clusterEntitiesList.get(index).size();
-        int centerY = sumY / this.clusterEntitiesList.get(index).size();
-        StandardEntity center = this.getNearEntityByLine(this.worldInfo,
-            this.clusterEntitiesList.get(index), centerX, centerY);
-        if (center instanceof Area) {
-          this.centerList.set(index, center);
-        } else if (center instanceof Human) {
-          this.centerList.set(index,
-              this.worldInfo.getEntity(((Human) center).getPosition()));
-        } else if (center instanceof Blockade) {
-          this.centerList.set(index,
-              this.worldInfo.getEntity(((Blockade) center).getPosition()));
-        }
-      }
-      if (scenarioInfo.isDebugMode()) {
-        System.out.print("*");
-      }
-    }
-
-    if (scenarioInfo.isDebugMode()) {
-      System.out.println();
-    }
+    KMeansKernel kernel = KMeansSupport.createKernel(this.worldInfo,
+        entityList, this.parallelism);
+    int[] centers = KMeansSupport.initCenters(kernel, this.clusterSize,
+        this.initPlusPlus, random);
+    // calc center; with a time budget, iterate until convergence or the
+    // deadline instead of a fixed count, and keep the best centers seen
+    long start = System.nanoTime();
+    int[] assignment = new int[entityList.size()];
+    int iterations = KMeansSupport.optimize(kernel, centers, assignment,
+        repeat, this.preparateTimeBudget, scenarioInfo.isDebugMode());
+    logger.info("preparate: " + iterations + " iterations in "
+        + (System.nanoTime() - start) / 1000000L + " ms");
 
     // set entity
     this.clusterEntitiesList.clear();
     for (int index = 0; index < this.clusterSize; index++) {
       this.clusterEntitiesList.put(index, new ArrayList<>());
+      this.centerList.set(index, entityList.get(centers[index]));
     }
-    for (StandardEntity entity : entityList) {
-      StandardEntity tmp = this.getNearEntityByLine(this.worldInfo,
-          this.centerList, entity);
-      this.clusterEntitiesList.get(this.centerList.indexOf(tmp)).add(entity);
+    for (int i = 0; i < entityList.size(); i++) {
+      this.clusterEntitiesList.get(assignment[i]).add(entityList.get(i));
     }
 
     // this.clusterEntitiesList.sort(comparing(List::size, reverseOrder()));
@@ -300,9 +305,8 @@ public class KMeansClustering extends StaticClustering {
       List<StandardEntity> ambulanceteamList = new ArrayList<>(
           this.worldInfo.getEntitiesOfType(StandardEntityURN.AMBULANCE_TEAM));
 
-      this.assignAgents(this.worldInfo, firebrigadeList);
-      this.assignAgents(this.worldInfo, policeforceList);
-      this.assignAgents(this.worldInfo, ambulanceteamList);
+      this.assignAgents(this.worldInfo,
+          Arrays.asList(firebrigadeList, policeforceList, ambulanceteamList));
     }
 
     this.centerIDs = new ArrayList<>();
@@ -322,8 +326,9 @@ public class KMeansClustering extends StaticClustering {
 
   private void calcPathBased(int repeat) {
     this.initShortestPath(this.worldInfo);
-    Random random = new Random();
-    List<StandardEntity> entityList = new ArrayList<>(this.entities);
+    List<StandardEntity> entityList = KMeansSupport
+        .sortEntities(this.entities);
+    Random random = KMeansSupport.createRandom(entityList, this.seed);
     this.centerList = new ArrayList<>(this.clusterSize);
     this.clusterEntitiesList = new HashMap<>(this.clusterSize);
 
@@ -331,24 +336,19 @@ public class KMeansClustering extends StaticClustering {
       this.clusterEntitiesList.put(index, new ArrayList<>());
       this.centerList.add(index, entityList.get(0));
     }
+    int[] centers = KMeansSupport.initCenters(KMeansSupport.createKernel(
+        this.worldInfo, entityList, this.parallelism), this.clusterSize,
+        this.initPlusPlus, random);
     for (int index = 0; index < this.clusterSize; index++) {
-      StandardEntity centerEntity;
-      do {
-        centerEntity = entityList
-            .get(Math.abs(random.nextInt()) % entityList.size());
-      } while (this.centerList.contains(centerEntity));
-      this.centerList.set(index, centerEntity);
+      this.centerList.set(index, entityList.get(centers[index]));
     }
     for (int i = 0; i < repeat; i++) {
+      List<StandardEntity> previous = new ArrayList<>(this.centerList);
       this.clusterEntitiesList.clear();
       for (int index = 0; index < this.clusterSize; index++) {
         this.clusterEntitiesList.put(index, new ArrayList<>());
       }
-      for (StandardEntity entity : entityList) {
-        StandardEntity tmp = this.getNearEntity(this.worldInfo, this.centerList,
-            entity);
-        this.clusterEntitiesList.get(this.centerList.indexOf(tmp)).add(entity);
-      }
+      this.assignByPath(entityList);
       for (int index = 0; index < this.clusterSize; index++) {
         int sumX = 0, sumY = 0;
         for (StandardEntity entity : this.clusterEntitiesList.get(index)) {
@@ -376,6 +376,9 @@ public class KMeansClustering extends StaticClustering {
       if (scenarioInfo.isDebugMode()) {
         System.out.print("*");
       }
+      if (previous.equals(this.centerList)) {
+        break;
+      }
     }
 
     if (scenarioInfo.isDebugMode()) {
@@ -386,11 +389,7 @@ public class KMeansClustering extends StaticClustering {
     for (int index = 0; index < this.clusterSize; index++) {
       this.clusterEntitiesList.put(index, new ArrayList<>());
     }
-    for (StandardEntity entity : entityList) {
-      StandardEntity tmp = this.getNearEntity(this.worldInfo, this.centerList,
-          entity);
-      this.clusterEntitiesList.get(this.centerList.indexOf(tmp)).add(entity);
-    }
+    this.assignByPath(entityList);
     // this.clusterEntitiesList.sort(comparing(List::size, reverseOrder()));
     if (this.assignAgentsFlag) {
       List<StandardEntity> fireBrigadeList = new ArrayList<>(
@@ -399,9 +398,8 @@ public class KMeansClustering extends StaticClustering {
           this.worldInfo.getEntitiesOfType(StandardEntityURN.POLICE_FORCE));
       List<StandardEntity> ambulanceTeamList = new ArrayList<>(
           this.worldInfo.getEntitiesOfType(StandardEntityURN.AMBULANCE_TEAM));
-      this.assignAgents(this.worldInfo, fireBrigadeList);
-      this.assignAgents(this.worldInfo, policeForceList);
-      this.assignAgents(this.worldInfo, ambulanceTeamList);
+      this.assignAgents(this.worldInfo,
+          Arrays.asList(fireBrigadeList, policeForceList, ambulanceTeamList));
     }
 
     this.centerIDs = new ArrayList<>();
@@ -419,18 +417,55 @@ public class KMeansClustering extends StaticClustering {
   }
 
 
-  private void assignAgents(WorldInfo world, List<StandardEntity> agentList) {
-    int clusterIndex = 0;
-    while (agentList.size() > 0) {
-      StandardEntity center = this.centerList.get(clusterIndex);
-      StandardEntity agent = this.getNearAgent(world, agentList, center);
-      this.clusterEntitiesList.get(clusterIndex).add(agent);
-      agentList.remove(agent);
-      clusterIndex++;
-      if (clusterIndex >= this.clusterSize) {
-        clusterIndex = 0;
+  private void assignByPath(List<StandardEntity> entityList) {
+    if (!this.voronoiAssignment) {
+      for (StandardEntity entity : entityList) {
+        StandardEntity tmp = this.getNearEntity(this.worldInfo, this.centerList,
+            entity);
+        this.clusterEntitiesList.get(this.centerList.indexOf(tmp)).add(entity);
       }
+      return;
     }
+    // one multi-source sweep labels every area with its nearest center
+    int[] sources = new int[this.clusterSize];
+    int[] sourceClusters = new int[this.clusterSize];
+    int count = 0;
+    for (int index = 0; index < this.clusterSize; index++) {
+      int node = this.shortestPathGraph
+          .indexOf(this.centerList.get(index).getID());
+      if (node >= 0) {
+        sources[count] = node;
+        sourceClusters[count++] = index;
+      }
+    }
+    this.shortestPathSearch.dijkstra(sources, count);
+    for (StandardEntity entity : entityList) {
+      int node = this.shortestPathGraph.indexOf(entity.getID());
+      int clusterIndex;
+      if (node >= 0 && this.shortestPathSearch.isReached(node)) {
+        clusterIndex = sourceClusters[this.shortestPathSearch.getOrigin(node)];
+      } else {
+        StandardEntity tmp = this.getNearEntityByLine(this.worldInfo,
+            this.centerList, entity);
+        clusterIndex = this.centerList.indexOf(tmp);
+      }
+      this.clusterEntitiesList.get(clusterIndex).add(entity);
+    }
+  }
+
+
+  /**
+   * Assigns the agents to the clusters so that every cluster gets the same
+   * number of agents (give or take one) and the total path distance from the
+   * centers to the agents is minimal.
+   */
+  private void assignAgents(WorldInfo world,
+      List<List<StandardEntity>> agentLists) {
+    double[][] cost = KMeansSupport.pathCost(world,
+        KMeansSupport.concat(agentLists), this.centerList,
+        this.shortestPathGraph, this.shortestPathSearch);
+    KMeansSupport.assignAgents(agentLists, cost, this.clusterSize,
+        this.clusterEntitiesList);
   }
 
 
@@ -454,26 +489,6 @@ public class KMeansClustering extends StaticClustering {
   }
 
 
-  private StandardEntity getNearAgent(WorldInfo worldInfo,
-      List<StandardEntity> srcAgentList, StandardEntity targetEntity) {
-    StandardEntity result = null;
-    for (StandardEntity agent : srcAgentList) {
-      Human human = (Human) agent;
-      if (result == null) {
-        result = agent;
-      } else {
-        if (this
-            .comparePathDistance(worldInfo, targetEntity, result,
-                worldInfo.getPosition(human))
-            .equals(worldInfo.getPosition(human))) {
-          result = agent;
-        }
-      }
-    }
-    return result;
-  }
-
-
   private StandardEntity getNearEntity(WorldInfo worldInfo,
       List<StandardEntity> srcEntityList, int targetX, int targetY) {
     StandardEntity result = null;
@@ -583,27 +598,9 @@ public class KMeansClustering extends StaticClustering {
 
 
   private void initShortestPath(WorldInfo worldInfo) {
-    Map<EntityID,
-        Set<EntityID>> neighbours = new LazyMap<EntityID, Set<EntityID>>() {
-
-          @Override
-          public Set<EntityID> createValue() {
-            return new HashSet<>();
-          }
-        };
-    for (Entity next : worldInfo) {
-      if (next instanceof Area) {
-        Collection<EntityID> areaNeighbours = ((Area) next).getNeighbours();
-        neighbours.get(next.getID()).addAll(areaNeighbours);
-      }
-    }
-    for (Map.Entry<EntityID, Set<EntityID>> graph : neighbours.entrySet()) {// fix
-                                                                            // graph
-      for (EntityID entityID : graph.getValue()) {
-        neighbours.get(entityID).add(graph.getKey());
-      }
-    }
-    this.shortestPathGraph = neighbours;
+    this.shortestPathGraph = AreaGraph.of(worldInfo);
+    this.shortestPathSearch = new GraphSearch(this.shortestPathGraph);
+    this.shortestPathGoals = new int[1];
   }
 
 
@@ -614,53 +611,29 @@ public class KMeansClustering extends StaticClustering {
 
   private List<EntityID> shortestPath(EntityID start,
       Collection<EntityID> goals) {
-    List<EntityID> open = new LinkedList<>();
-    Map<EntityID, EntityID> ancestors = new HashMap<>();
-    open.add(start);
-    EntityID next;
-    boolean found = false;
-    ancestors.put(start, start);
-    do {
-      next = open.remove(0);
-      if (isGoal(next, goals)) {
-        found = true;
-        break;
-      }
-      Collection<EntityID> neighbours = shortestPathGraph.get(next);
-      if (neighbours.isEmpty())
-        continue;
-
-      for (EntityID neighbour : neighbours) {
-        if (isGoal(neighbour, goals)) {
-          ancestors.put(neighbour, next);
-          next = neighbour;
-          found = true;
-          break;
-        } else if (!ancestors.containsKey(neighbour)) {
-          open.add(neighbour);
-          ancestors.put(neighbour, next);
-        }
+    int source = this.shortestPathGraph.indexOf(start);
+    if (this.shortestPathGoals.length < goals.size()) {
+      this.shortestPathGoals = new int[goals.size()];
+    }
+    int goalCount = 0;
+    for (EntityID goal : goals) {
+      int node = this.shortestPathGraph.indexOf(goal);
+      if (node >= 0) {
+        this.shortestPathGoals[goalCount++] = node;
       }
-    } while (!found && !open.isEmpty());
-    if (!found) {
+    }
+    int found = (source >= 0 && goalCount > 0)
+        ? this.shortestPathSearch.bfs(source, this.shortestPathGoals, goalCount)
+        : -1;
+    if (found < 0) {
       // No path
       return null;
     }
-    // Walk back from goal to start
-    EntityID current = next;
-    List<EntityID> path = new LinkedList<>();
-    do {
-      path.add(0, current);
-      current = ancestors.get(current);
-      if (current == null)
-        throw new RuntimeException(
-            "Found a node with no ancestor! Something is broken.");
-    } while (current != start);
+    // The start is left out of the path unless it is the goal itself
+    List<EntityID> path = this.shortestPathSearch.getPath(found);
+    if (path.size() > 1) {
+      path.remove(0);
+    }
     return path;
   }
-
-
-  private boolean isGoal(EntityID e, Collection<EntityID> test) {
-    return test.contains(e);
-  }
-}
\ No newline at end of file
+}
@@ -0,0 +1,519 @@
+package sample_team.module.algorithm;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Assignment and centroid steps of the k-means clustering modules, run over
+ * primitive coordinate arrays.
+ * <p>
+ * Centers are entity indices (k-medoids style: a center always sits on an
+ * entity). Distances are compared as exact squared integers, and every tie is
+ * broken towards the lower index, so the parallel mode splits the entity range
+ * over a bounded fork-join pool and still produces exactly the result of the
+ * sequential mode.
+ */
+public final class KMeansKernel {
+
+  private static final int MIN_CHUNK = 1024;
+  // relative slack that keeps the rounded square roots of the bounds safe
+  private static final double SLACK = 1.0E-9D;
+  private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+  private final int[] x;
+  private final int[] y;
+  private final int parallelism;
+  private final int chunk;
+
+  /**
+   * @param parallelism the number of worker threads; 1 or less runs everything
+   *                    on the calling thread
+   */
+  public KMeansKernel(int[] x, int[] y, int parallelism) {
+    this.x = x;
+    this.y = y;
+    this.parallelism = Math.max(1, parallelism);
+    this.chunk = Math.max(MIN_CHUNK, x.length / (this.parallelism * 4) + 1);
+  }
+
+
+  /**
+   * Returns the shared pool with {@code parallelism} workers. Pools are created
+   * once per size and shared by every module in the JVM.
+   */
+  public static ForkJoinPool getPool(int parallelism) {
+    return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+  }
+
+
+  public int size() {
+    return this.x.length;
+  }
+
+
+  public int getX(int index) {
+    return this.x[index];
+  }
+
+
+  public int getY(int index) {
+    return this.y[index];
+  }
+
+
+  /**
+   * Squared distance between two entities.
+   */
+  public long distanceSquared(int a, int b) {
+    long dx = (long) this.x[a] - this.x[b];
+    long dy = (long) this.y[a] - this.y[b];
+    return dx * dx + dy * dy;
+  }
+
+
+  /**
+   * Picks {@code k} distinct initial centers with k-means++ seeding: the first
+   * uniformly, every further one with probability proportional to its squared
+   * distance to the closest center chosen so far. The result depends only on
+   * the coordinates and the state of {@code random}.
+   */
+  public int[] seedPlusPlus(int k, Random random) {
+    int n = this.x.length;
+    int[] centers = new int[k];
+    long[] nearest = new long[n];
+    Arrays.fill(nearest, Long.MAX_VALUE);
+    boolean[] chosen = new boolean[n];
+    int center = random.nextInt(n);
+    for (int c = 0; c < k; c++) {
+      if (c > 0) {
+        double total = 0.0D;
+        for (int i = 0; i < n; i++) {
+          total += nearest[i];
+        }
+        center = -1;
+        if (total > 0.0D) {
+          double r = random.nextDouble() * total;
+          for (int i = 0; i < n; i++) {
+            if (nearest[i] == 0L) {
+              continue;
+            }
+            center = i;
+            r -= nearest[i];
+            if (r < 0.0D) {
+              break;
+            }
+          }
+        }
+        if (center < 0) {
+          // every entity sits on a center already; fall back to any free one
+          do {
+            center = random.nextInt(n);
+          } while (chosen[center] && c < n);
+        }
+      }
+      centers[c] = center;
+      chosen[center] = true;
+      for (int i = 0; i < n; i++) {
+        long d = this.distanceSquared(i, center);
+        if (d < nearest[i]) {
+          nearest[i] = d;
+        }
+      }
+    }
+    return centers;
+  }
+
+
+  /**
+   * Stores the index (into {@code centers}) of the nearest center of every
+   * entity in {@code assignment}.
+   */
+  public void assign(int[] centers, int[] assignment) {
+    this.assign(centers, assignment, null);
+  }
+
+
+  /**
+   * Same as {@link #assign(int[], int[])}, but with Hamerly's distance bounds
+   * kept in {@code bounds} between calls: an entity whose distance to its own
+   * center is provably below the distance to every other center keeps its
+   * assignment without looking at the other centers. The result is identical
+   * to the unbounded assignment, ties included.
+   *
+   * @param bounds state created by {@link #createBounds(int)} and passed to
+   *               every call of one clustering run, or null
+   */
+  public void assign(int[] centers, int[] assignment, Bounds bounds) {
+    if (bounds != null) {
+      bounds.prepare(centers);
+    }
+    if (this.isSequential()) {
+      this.assignRange(centers, assignment, bounds, 0, this.x.length);
+    } else {
+      getPool(this.parallelism).invoke(
+          new AssignTask(centers, assignment, bounds, 0, this.x.length));
+    }
+  }
+
+
+  public Bounds createBounds(int k) {
+    return new Bounds(this.x.length, k);
+  }
+
+
+  /**
+   * Moves the center of every non-empty cluster to the member closest to the
+   * cluster mean.
+   *
+   * @return true if at least one center moved
+   */
+  public boolean update(int[] assignment, int[] centers) {
+    int k = centers.length;
+    Sums sums = this.isSequential()
+        ? this.sumRange(assignment, k, 0, this.x.length)
+        : getPool(this.parallelism)
+            .invoke(new SumTask(assignment, k, 0, this.x.length));
+    long[] meanX = new long[k];
+    long[] meanY = new long[k];
+    for (int c = 0; c < k; c++) {
+      if (sums.count[c] > 0) {
+        meanX[c] = sums.x[c] / sums.count[c];
+        meanY[c] = sums.y[c] / sums.count[c];
+      }
+    }
+    Nearest nearest = this.isSequential()
+        ? this.nearestRange(assignment, meanX, meanY, 0, this.x.length)
+        : getPool(this.parallelism).invoke(
+            new NearestTask(assignment, meanX, meanY, 0, this.x.length));
+    boolean changed = false;
+    for (int c = 0; c < k; c++) {
+      if (nearest.index[c] >= 0 && nearest.index[c] != centers[c]) {
+        centers[c] = nearest.index[c];
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+
+  /**
+   * Sum of the squared distances of the entities to their assigned centers,
+   * the objective the clustering minimises.
+   */
+  public long cost(int[] centers, int[] assignment) {
+    long cost = 0L;
+    for (int i = 0; i < this.x.length; i++) {
+      cost += this.distanceSquared(i, centers[assignment[i]]);
+    }
+    return cost;
+  }
+
+
+  private boolean isSequential() {
+    return this.parallelism <= 1 || this.x.length <= this.chunk;
+  }
+
+
+  private void assignRange(int[] centers, int[] assignment, Bounds bounds,
+      int from, int to) {
+    int k = centers.length;
+    for (int i = from; i < to; i++) {
+      if (bounds != null && bounds.active) {
+        int a = assignment[i];
+        double upper = bounds.upper[i] + bounds.move[a];
+        double lower = bounds.lower[i] - (a == bounds.farthest
+            ? bounds.secondMove : bounds.maxMove);
+        double limit = Math.max(bounds.half[a], lower);
+        if (upper < limit) {
+          bounds.upper[i] = upper;
+          bounds.lower[i] = lower;
+          continue;
+        }
+        upper = up(Math.sqrt(this.distanceSquared(i, centers[a])));
+        if (upper < limit) {
+          bounds.upper[i] = upper;
+          bounds.lower[i] = lower;
+          continue;
+        }
+      }
+      long px = this.x[i];
+      long py = this.y[i];
+      int best = 0;
+      long bestDistance = Long.MAX_VALUE;
+      long secondDistance = Long.MAX_VALUE;
+      for (int c = 0; c < k; c++) {
+        long dx = px - this.x[centers[c]];
+        long dy = py - this.y[centers[c]];
+        long d = dx * dx + dy * dy;
+        if (d < bestDistance) {
+          secondDistance = bestDistance;
+          bestDistance = d;
+          best = c;
+        } else if (d < secondDistance) {
+          secondDistance = d;
+        }
+      }
+      assignment[i] = best;
+      if (bounds != null) {
+        bounds.upper[i] = up(Math.sqrt(bestDistance));
+        bounds.lower[i] = secondDistance == Long.MAX_VALUE
+            ? Double.MAX_VALUE : down(Math.sqrt(secondDistance));
+      }
+    }
+  }
+
+
+  private static double up(double distance) {
+    return distance * (1.0D + SLACK) + SLACK;
+  }
+
+
+  private static double down(double distance) {
+    return distance * (1.0D - SLACK) - SLACK;
+  }
+
+
+  private Sums sumRange(int[] assignment, int k, int from, int to) {
+    Sums sums = new Sums(k);
+    for (int i = from; i < to; i++) {
+      int c = assignment[i];
+      sums.x[c] += this.x[i];
+      sums.y[c] += this.y[i];
+      sums.count[c]++;
+    }
+    return sums;
+  }
+
+
+  private Nearest nearestRange(int[] assignment, long[] meanX, long[] meanY,
+      int from, int to) {
+    Nearest nearest = new Nearest(meanX.length);
+    for (int i = from; i < to; i++) {
+      int c = assignment[i];
+      long dx = this.x[i] - meanX[c];
+      long dy = this.y[i] - meanY[c];
+      long d = dx * dx + dy * dy;
+      if (d < nearest.distance[c]) {
+        nearest.distance[c] = d;
+        nearest.index[c] = i;
+      }
+    }
+    return nearest;
+  }
+
+
+  /**
+   * Per-entity distance bounds of {@link #assign(int[], int[], Bounds)}:
+   * an upper bound of the distance to the assigned center and a lower bound
+   * of the distance to every other center, moved by the center displacement
+   * after each update.
+   */
+  public final class Bounds {
+
+    private final double[] upper;
+    private final double[] lower;
+    private final int[] previous;
+    private final double[] move;
+    private final double[] half;
+    private double maxMove;
+    private double secondMove;
+    private int farthest;
+    private boolean initialized;
+    // whether the bounds describe the assignment passed to this call
+    private boolean active;
+
+    private Bounds(int n, int k) {
+      this.upper = new double[n];
+      this.lower = new double[n];
+      this.previous = new int[k];
+      this.move = new double[k];
+      this.half = new double[k];
+    }
+
+
+    private void prepare(int[] centers) {
+      int k = centers.length;
+      if (this.initialized) {
+        this.maxMove = 0.0D;
+        this.secondMove = 0.0D;
+        this.farthest = -1;
+        for (int c = 0; c < k; c++) {
+          double d = this.previous[c] == centers[c] ? 0.0D
+              : up(Math.sqrt(distanceSquared(this.previous[c], centers[c])));
+          this.move[c] = d;
+          if (d > this.maxMove) {
+            this.secondMove = this.maxMove;
+            this.maxMove = d;
+            this.farthest = c;
+          } else if (d > this.secondMove) {
+            this.secondMove = d;
+          }
+        }
+        for (int c = 0; c < k; c++) {
+          long nearest = Long.MAX_VALUE;
+          for (int o = 0; o < k; o++) {
+            if (o != c) {
+              nearest = Math.min(nearest,
+                  distanceSquared(centers[c], centers[o]));
+            }
+          }
+          this.half[c] = nearest == Long.MAX_VALUE ? Double.MAX_VALUE
+              : down(Math.sqrt(nearest)) / 2.0D;
+        }
+      }
+      System.arraycopy(centers, 0, this.previous, 0, k);
+      this.active = this.initialized;
+      this.initialized = true;
+    }
+  }
+
+  private static final class Sums {
+
+    final long[] x;
+    final long[] y;
+    final int[] count;
+
+    Sums(int k) {
+      this.x = new long[k];
+      this.y = new long[k];
+      this.count = new int[k];
+    }
+
+
+    Sums merge(Sums other) {
+      for (int c = 0; c < this.count.length; c++) {
+        this.x[c] += other.x[c];
+        this.y[c] += other.y[c];
+        this.count[c] += other.count[c];
+      }
+      return this;
+    }
+  }
+
+  private static final class Nearest {
+
+    final long[] distance;
+    final int[] index;
+
+    Nearest(int k) {
+      this.distance = new long[k];
+      this.index = new int[k];
+      Arrays.fill(this.distance, Long.MAX_VALUE);
+      Arrays.fill(this.index, -1);
+    }
+
+
+    // this covers the lower index range, so it keeps ties
+    Nearest merge(Nearest upper) {
+      for (int c = 0; c < this.index.length; c++) {
+        if (upper.distance[c] < this.distance[c]) {
+          this.distance[c] = upper.distance[c];
+          this.index[c] = upper.index[c];
+        }
+      }
+      return this;
+    }
+  }
+
+  private final class AssignTask extends RecursiveAction {
+
+    private final int[] centers;
+    private final int[] assignment;
+    private final Bounds bounds;
+    private final int from;
+    private final int to;
+
+    AssignTask(int[] centers, int[] assignment, Bounds bounds, int from,
+        int to) {
+      this.centers = centers;
+      this.assignment = assignment;
+      this.bounds = bounds;
+      this.from = from;
+      this.to = to;
+    }
+
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= chunk) {
+        assignRange(this.centers, this.assignment, this.bounds, this.from,
+            this.to);
+        return;
+      }
+      int mid = (this.from + this.to) >>> 1;
+      invokeAll(
+          new AssignTask(this.centers, this.assignment, this.bounds,
+              this.from, mid),
+          new AssignTask(this.centers, this.assignment, this.bounds, mid,
+              this.to));
+    }
+  }
+
+  private final class SumTask extends RecursiveTask<Sums> {
+
+    private final int[] assignment;
+    private final int k;
+    private final int from;
+    private final int to;
+
+    SumTask(int[] assignment, int k, int from, int to) {
+      this.assignment = assignment;
+      this.k = k;
+      this.from = from;
+      this.to = to;
+    }
+
+
+    @Override
+    protected Sums compute() {
+      if (this.to - this.from <= chunk) {
+        return sumRange(this.assignment, this.k, this.from, this.to);
+      }
+      int mid = (this.from + this.to) >>> 1;
+      SumTask lower = new SumTask(this.assignment, this.k, this.from, mid);
+      lower.fork();
+      Sums upper = new SumTask(this.assignment, this.k, mid, this.to)
+          .compute();
+      return lower.join().merge(upper);
+    }
+  }
+
+  private final class NearestTask extends RecursiveTask<Nearest> {
+
+    private final int[] assignment;
+    private final long[] meanX;
+    private final long[] meanY;
+    private final int from;
+    private final int to;
+
+    NearestTask(int[] assignment, long[] meanX, long[] meanY, int from,
+        int to) {
+      this.assignment = assignment;
+      this.meanX = meanX;
+      this.meanY = meanY;
+      this.from = from;
+      this.to = to;
+    }
+
+
+    @Override
+    protected Nearest compute() {
+      if (this.to - this.from <= chunk) {
+        return nearestRange(this.assignment, this.meanX, this.meanY,
+            this.from, this.to);
+      }
+      int mid = (this.from + this.to) >>> 1;
+      NearestTask lower = new NearestTask(this.assignment, this.meanX,
+          this.meanY, this.from, mid);
+      lower.fork();
+      Nearest upper = new NearestTask(this.assignment, this.meanX, this.meanY,
+          mid, this.to).compute();
+      return lower.join().merge(upper);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.info.WorldInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import rescuecore2.misc.Pair;
+import rescuecore2.standard.entities.Human;
+import rescuecore2.standard.entities.StandardEntity;
+
+/**
+ * Steps shared by the k-means clustering modules: entity ordering, seeding,
+ * kernel construction, the center iteration and the balanced assignment of
+ * agents to clusters.
+ */
+final class KMeansSupport {
+
+  private KMeansSupport() {
+  }
+
+
+  /**
+   * The entities ordered by ID, so that every agent indexes them the same
+   * way.
+   */
+  static List<StandardEntity> sortEntities(
+      Collection<StandardEntity> entities) {
+    List<StandardEntity> entityList = new ArrayList<>(entities);
+    entityList.sort((a, b) -> Integer.compare(a.getID().getValue(),
+        b.getID().getValue()));
+    return entityList;
+  }
+
+
+  /**
+   * Every agent must build the same clusters, so the generator is seeded
+   * either from develop data ({@code seed >= 0}) or from the entity IDs of
+   * the map.
+   */
+  static Random createRandom(List<StandardEntity> entityList, int seed) {
+    if (seed >= 0) {
+      return new Random(seed);
+    }
+    long hash = entityList.size();
+    for (StandardEntity entity : entityList) {
+      hash = 31 * hash + entity.getID().getValue();
+    }
+    return new Random(hash);
+  }
+
+
+  static KMeansKernel createKernel(WorldInfo worldInfo,
+      List<StandardEntity> entityList, int parallelism) {
+    int[] x = new int[entityList.size()];
+    int[] y = new int[entityList.size()];
+    for (int i = 0; i < entityList.size(); i++) {
+      Pair<Integer, Integer> location = worldInfo
+          .getLocation(entityList.get(i));
+      x[i] = location.first();
+      y[i] = location.second();
+    }
+    return new KMeansKernel(x, y, parallelism);
+  }
+
+
+  /**
+   * Picks {@code k} distinct initial centers, with k-means++ seeding if
+   * {@code plusPlus} is set and uniformly otherwise.
+   */
+  static int[] initCenters(KMeansKernel kernel, int k, boolean plusPlus,
+      Random random) {
+    if (plusPlus) {
+      return kernel.seedPlusPlus(k, random);
+    }
+    int[] centers = new int[k];
+    for (int index = 0; index < k; index++) {
+      boolean used;
+      do {
+        centers[index] = random.nextInt(kernel.size());
+        used = false;
+        for (int i = 0; i < index; i++) {
+          used |= centers[i] == centers[index];
+        }
+      } while (used);
+    }
+    return centers;
+  }
+
+
+  /**
+   * Moves {@code centers} until they converge, for {@code repeat}
+   * iterations, or with a positive {@code timeBudget} (milliseconds) until
+   * the deadline instead of a fixed count. The centers with the lowest cost
+   * seen are kept, and {@code assignment} is left matching them.
+   *
+   * @return the number of iterations run
+   */
+  static int optimize(KMeansKernel kernel, int[] centers, int[] assignment,
+      int repeat, long timeBudget, boolean debug) {
+    long deadline = System.nanoTime() + timeBudget * 1000000L;
+    int[] bestCenters = centers.clone();
+    long bestCost = Long.MAX_VALUE;
+    int iterations = 0;
+    while (timeBudget > 0 ? System.nanoTime() < deadline
+        : iterations < repeat) {
+      kernel.assign(centers, assignment);
+      long cost = kernel.cost(centers, assignment);
+      if (cost < bestCost) {
+        bestCost = cost;
+        System.arraycopy(centers, 0, bestCenters, 0, centers.length);
+      }
+      boolean changed = kernel.update(assignment, centers);
+      iterations++;
+      if (debug) {
+        System.out.print("*");
+      }
+      if (!changed) {
+        break;
+      }
+    }
+    // the centers of the last update have not been scored yet
+    kernel.assign(centers, assignment);
+    if (kernel.cost(centers, assignment) > bestCost) {
+      System.arraycopy(bestCenters, 0, centers, 0, centers.length);
+      kernel.assign(centers, assignment);
+    }
+    if (debug) {
+      System.out.println();
+    }
+    return iterations;
+  }
+
+
+  /**
+   * Path distance from every cluster center to the position of every agent
+   * of {@code agents}, one Dijkstra sweep per center;
+   * {@link Double#MAX_VALUE} where there is no path.
+   */
+  static double[][] pathCost(WorldInfo world, List<StandardEntity> agents,
+      List<StandardEntity> centers, AreaGraph graph, GraphSearch search) {
+    int[] positions = new int[agents.size()];
+    for (int a = 0; a < agents.size(); a++) {
+      StandardEntity position = world.getPosition((Human) agents.get(a));
+      positions[a] = position != null ? graph.indexOf(position.getID()) : -1;
+    }
+    double[][] cost = new double[agents.size()][centers.size()];
+    for (int index = 0; index < centers.size(); index++) {
+      int center = graph.indexOf(centers.get(index).getID());
+      if (center >= 0) {
+        search.dijkstra(center, null, 0);
+      }
+      for (int a = 0; a < agents.size(); a++) {
+        cost[a][index] = center >= 0 && positions[a] >= 0
+            ? search.getDistance(positions[a])
+            : Double.MAX_VALUE;
+      }
+    }
+    return cost;
+  }
+
+
+  /**
+   * Adds the agents to the clusters so that every cluster gets the same
+   * number of agents of each type (give or take one) and the total cost is
+   * minimal. The rows of {@code cost} follow the agents of
+   * {@code agentLists} in order.
+   */
+  static void assignAgents(List<List<StandardEntity>> agentLists,
+      double[][] cost, int clusterSize,
+      Map<Integer, List<StandardEntity>> clusterEntities) {
+    int offset = 0;
+    for (List<StandardEntity> agentList : agentLists) {
+      double[][] typeCost = Arrays.copyOfRange(cost, offset,
+          offset + agentList.size());
+      int[] clusters = BalancedAssignment.solve(typeCost, clusterSize);
+      for (int a = 0; a < agentList.size(); a++) {
+        clusterEntities.get(clusters[a]).add(agentList.get(a));
+      }
+      offset += agentList.size();
+    }
+  }
+
+
+  static List<StandardEntity> concat(List<List<StandardEntity>> lists) {
+    List<StandardEntity> all = new ArrayList<>();
+    for (List<StandardEntity> list : lists) {
+      all.addAll(list);
+    }
+    return all;
+  }
+}
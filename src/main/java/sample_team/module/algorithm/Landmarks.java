@@ -0,0 +1,232 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.precompute.PrecomputeData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Landmark distance tables for ALT (A*, landmarks, triangle inequality)
+ * lower bounds on an {@link AreaGraph}.
+ * <p>
+ * For every landmark {@code L} the table holds the distance from {@code L}
+ * to every node, rounded down to a whole number. By the triangle inequality
+ * {@code d(v, t) >= |d(L, t) - d(L, v)|}; the rounding is covered by
+ * subtracting one. Landmarks are chosen by farthest-point selection, which
+ * puts them on the edge of the map where the bounds are tightest.
+ */
+public final class Landmarks {
+
+  private static final int UNREACHABLE = -1;
+  private static final Map<String, Landmarks> SHARED = new ConcurrentHashMap<>();
+
+  private final AreaGraph graph;
+  private final int[] nodes;
+  // distances[l][v]: distance from landmark l to node v, or UNREACHABLE
+  private final int[][] distances;
+
+  private Landmarks(AreaGraph graph, int[] nodes, int[][] distances) {
+    this.graph = graph;
+    this.nodes = nodes;
+    this.distances = distances;
+  }
+
+
+  /**
+   * Selects up to {@code count} landmarks and computes their tables, one
+   * Dijkstra sweep per landmark.
+   */
+  public static Landmarks build(AreaGraph graph, int count) {
+    int n = graph.size();
+    int k = Math.min(count, n);
+    GraphSearch search = new GraphSearch(graph);
+    int[] nodes = new int[k];
+    int[][] distances = new int[k][];
+    // distance from every node to its nearest landmark so far
+    double[] nearest = new double[n];
+    Arrays.fill(nearest, Double.MAX_VALUE);
+    int next = n > 0 ? farthestFrom(search, 0) : -1;
+    for (int l = 0; l < k; l++) {
+      nodes[l] = next;
+      search.dijkstra(next, null, 0);
+      int[] table = new int[n];
+      for (int v = 0; v < n; v++) {
+        double d = search.getDistance(v);
+        table[v] = d < Double.MAX_VALUE ? (int) Math.min(d, Integer.MAX_VALUE)
+            : UNREACHABLE;
+        if (d < nearest[v]) {
+          nearest[v] = d;
+        }
+      }
+      distances[l] = table;
+      // the next landmark is the node farthest from all chosen ones; nodes
+      // no landmark reaches yet come first so every component gets one
+      next = 0;
+      for (int v = 1; v < n; v++) {
+        if (nearest[v] > nearest[next]) {
+          next = v;
+        }
+      }
+      if (nearest[next] == 0.0D) {
+        // every node is a landmark
+        return new Landmarks(graph, Arrays.copyOf(nodes, l + 1),
+            Arrays.copyOf(distances, l + 1));
+      }
+    }
+    return new Landmarks(graph, nodes, distances);
+  }
+
+
+  /**
+   * Returns the tables for the map of {@code graph}, building them once per
+   * JVM; agents on the same map share one instance.
+   */
+  public static Landmarks of(AreaGraph graph, int count) {
+    return SHARED.computeIfAbsent(
+        Long.toHexString(graph.getFingerprint()) + "/" + count,
+        key -> build(graph, count));
+  }
+
+
+  private static int farthestFrom(GraphSearch search, int source) {
+    search.dijkstra(source, null, 0);
+    int farthest = source;
+    double max = 0.0D;
+    for (int v = 0; v < search.getGraph().size(); v++) {
+      double d = search.getDistance(v);
+      if (d < Double.MAX_VALUE && d > max) {
+        max = d;
+        farthest = v;
+      }
+    }
+    return farthest;
+  }
+
+
+  /**
+   * Stores the landmarks and tables under {@code prefix}. The tables are
+   * packed into base64 strings, about 5.4 characters per entry.
+   */
+  public void write(PrecomputeData precomputeData, String prefix) {
+    List<EntityID> ids = new ArrayList<>(this.nodes.length);
+    for (int node : this.nodes) {
+      ids.add(this.graph.getID(node));
+    }
+    precomputeData.setString(prefix + ".fingerprint",
+        Long.toHexString(this.graph.getFingerprint()));
+    precomputeData.setEntityIDList(prefix + ".landmarks", ids);
+    for (int l = 0; l < this.nodes.length; l++) {
+      precomputeData.setString(prefix + ".distances." + l,
+          PackedArrays.encode(this.distances[l]));
+    }
+  }
+
+
+  /**
+   * Reads tables written by {@link #write(PrecomputeData, String)}, or
+   * returns null if there are none or they were built for another map.
+   * Agents on the same map share the decoded tables.
+   */
+  public static Landmarks read(PrecomputeData precomputeData, String prefix,
+      AreaGraph graph) {
+    String fingerprint = precomputeData.getString(prefix + ".fingerprint");
+    List<EntityID> ids = precomputeData.getEntityIDList(prefix + ".landmarks");
+    if (fingerprint == null || ids == null || !fingerprint
+        .equals(Long.toHexString(graph.getFingerprint()))) {
+      return null;
+    }
+    return SHARED.computeIfAbsent(fingerprint + "/" + ids.size(),
+        key -> readTables(precomputeData, prefix, graph, ids));
+  }
+
+
+  private static Landmarks readTables(PrecomputeData precomputeData,
+      String prefix, AreaGraph graph, List<EntityID> ids) {
+    int[] nodes = new int[ids.size()];
+    int[][] distances = new int[ids.size()][];
+    for (int l = 0; l < nodes.length; l++) {
+      nodes[l] = graph.indexOf(ids.get(l));
+      distances[l] = PackedArrays.decodeInts(
+          precomputeData.getString(prefix + ".distances." + l));
+      if (nodes[l] < 0 || distances[l] == null
+          || distances[l].length != graph.size()) {
+        return null;
+      }
+    }
+    return new Landmarks(graph, nodes, distances);
+  }
+
+
+  public AreaGraph getGraph() {
+    return this.graph;
+  }
+
+
+  public int size() {
+    return this.nodes.length;
+  }
+
+
+  /**
+   * Prepares a lower bound on the distance from any node to the nearest of
+   * the {@code count} nodes in {@code goals}.
+   */
+  public Bound bound(int[] goals, int count) {
+    int k = this.nodes.length;
+    int[] low = new int[k];
+    int[] high = new int[k];
+    for (int l = 0; l < k; l++) {
+      int[] table = this.distances[l];
+      int lo = Integer.MAX_VALUE;
+      int hi = UNREACHABLE;
+      for (int i = 0; i < count; i++) {
+        int d = table[goals[i]];
+        if (d != UNREACHABLE) {
+          lo = Math.min(lo, d);
+          hi = Math.max(hi, d);
+        }
+      }
+      low[l] = lo;
+      high[l] = hi;
+    }
+    return new Bound(this.distances, low, high);
+  }
+
+
+  /**
+   * Lower bound towards a fixed goal set. With {@code lo} and {@code hi} the
+   * smallest and largest landmark distance of a goal, the distance to the
+   * nearest goal is at least {@code lo - d(L, v)} and {@code d(L, v) - hi}.
+   */
+  public static final class Bound {
+
+    private final int[][] distances;
+    private final int[] low;
+    private final int[] high;
+
+    private Bound(int[][] distances, int[] low, int[] high) {
+      this.distances = distances;
+      this.low = low;
+      this.high = high;
+    }
+
+
+    public double estimate(int node) {
+      int best = 0;
+      for (int l = 0; l < this.low.length; l++) {
+        int d = this.distances[l][node];
+        if (d == UNREACHABLE || this.high[l] == UNREACHABLE) {
+          continue;
+        }
+        int bound = Math.max(this.low[l] - d, d - this.high[l]);
+        if (bound > best) {
+          best = bound;
+        }
+      }
+      return best > 1 ? best - 1 : 0.0D;
+    }
+  }
+}
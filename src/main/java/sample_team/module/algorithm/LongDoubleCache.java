@@ -0,0 +1,218 @@
+package sample_team.module.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Bounded {@code long -> double} cache on primitive arrays.
+ * <p>
+ * Entries live in a linear-probing table kept at most half full, so neither
+ * keys nor values are boxed. The table is allocated on the first insertion
+ * and doubles as it fills, so a large capacity costs nothing until it is
+ * used. Once {@code capacity} entries are stored, every
+ * insertion evicts one entry chosen by the CLOCK policy: the hand sweeps the
+ * table, clearing the reference bit of recently read entries and evicting the
+ * first entry whose bit is already clear. Hits, misses and evictions are
+ * counted for tuning the capacity. An instance is not thread-safe.
+ */
+public final class LongDoubleCache {
+
+  private static final byte EMPTY = 0;
+  private static final byte PRESENT = 1;
+  private static final byte REFERENCED = 2;
+  private static final int INITIAL_LENGTH = 64;
+
+  private long[] keys;
+  private double[] values;
+  private byte[] states;
+  private int mask;
+  private final int capacity;
+  private final int maxLength;
+  private int size;
+  private int hand;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public LongDoubleCache(int capacity) {
+    this.capacity = Math.max(1, capacity);
+    this.maxLength = Integer.highestOneBit(this.capacity * 2 - 1) << 1;
+  }
+
+
+  /**
+   * Packs two int indices into a key; {@code key(a, b)} and
+   * {@code key(b, a)} differ.
+   */
+  public static long key(int a, int b) {
+    return ((long) a << 32) | (b & 0xFFFFFFFFL);
+  }
+
+
+  /**
+   * Returns the value stored for {@code key}, or {@link Double#NaN} on a miss.
+   */
+  public double get(long key) {
+    int pos = this.find(key);
+    if (pos < 0) {
+      this.misses++;
+      return Double.NaN;
+    }
+    this.hits++;
+    this.states[pos] = REFERENCED;
+    return this.values[pos];
+  }
+
+
+  public void put(long key, double value) {
+    int pos = this.find(key);
+    if (pos >= 0) {
+      this.values[pos] = value;
+      return;
+    }
+    if (this.size >= this.capacity) {
+      this.evict();
+    } else if (this.states == null
+        || (this.size + 1) * 2 > this.states.length) {
+      this.resize();
+    }
+    pos = mix(key) & this.mask;
+    while (this.states[pos] != EMPTY) {
+      pos = (pos + 1) & this.mask;
+    }
+    this.keys[pos] = key;
+    this.values[pos] = value;
+    this.states[pos] = PRESENT;
+    this.size++;
+  }
+
+
+  public void clear() {
+    if (this.states != null) {
+      Arrays.fill(this.states, EMPTY);
+    }
+    this.size = 0;
+    this.hand = 0;
+  }
+
+
+  public int size() {
+    return this.size;
+  }
+
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+
+  public long getHits() {
+    return this.hits;
+  }
+
+
+  public long getMisses() {
+    return this.misses;
+  }
+
+
+  public long getEvictions() {
+    return this.evictions;
+  }
+
+
+  @Override
+  public String toString() {
+    return "size=" + this.size + "/" + this.capacity + ", hits=" + this.hits
+        + ", misses=" + this.misses + ", evictions=" + this.evictions;
+  }
+
+
+  private int find(long key) {
+    if (this.states == null) {
+      return -1;
+    }
+    int pos = mix(key) & this.mask;
+    while (this.states[pos] != EMPTY) {
+      if (this.keys[pos] == key) {
+        return pos;
+      }
+      pos = (pos + 1) & this.mask;
+    }
+    return -1;
+  }
+
+
+  // allocates the table or doubles it, up to the length of the capacity
+  private void resize() {
+    long[] oldKeys = this.keys;
+    double[] oldValues = this.values;
+    byte[] oldStates = this.states;
+    int length = oldStates == null
+        ? Math.min(INITIAL_LENGTH, this.maxLength)
+        : oldStates.length * 2;
+    this.keys = new long[length];
+    this.values = new double[length];
+    this.states = new byte[length];
+    this.mask = length - 1;
+    this.hand = 0;
+    if (oldStates == null) {
+      return;
+    }
+    for (int i = 0; i < oldStates.length; i++) {
+      if (oldStates[i] == EMPTY) {
+        continue;
+      }
+      int pos = mix(oldKeys[i]) & this.mask;
+      while (this.states[pos] != EMPTY) {
+        pos = (pos + 1) & this.mask;
+      }
+      this.keys[pos] = oldKeys[i];
+      this.values[pos] = oldValues[i];
+      this.states[pos] = oldStates[i];
+    }
+  }
+
+
+  private void evict() {
+    while (true) {
+      int pos = this.hand;
+      this.hand = (this.hand + 1) & this.mask;
+      if (this.states[pos] == REFERENCED) {
+        this.states[pos] = PRESENT;
+      } else if (this.states[pos] == PRESENT) {
+        this.remove(pos);
+        this.evictions++;
+        return;
+      }
+    }
+  }
+
+
+  // backward-shift deletion keeps every probe chain free of holes
+  private void remove(int pos) {
+    int hole = pos;
+    int next = (hole + 1) & this.mask;
+    while (this.states[next] != EMPTY) {
+      int home = mix(this.keys[next]) & this.mask;
+      // move the entry unless its home lies cyclically in (hole, next]
+      if (((next - home) & this.mask) >= ((next - hole) & this.mask)) {
+        this.keys[hole] = this.keys[next];
+        this.values[hole] = this.values[next];
+        this.states[hole] = this.states[next];
+        hole = next;
+      }
+      next = (next + 1) & this.mask;
+    }
+    this.states[hole] = EMPTY;
+    this.size--;
+  }
+
+
+  // the home slot of a key is mix(key) & mask
+  static int mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    h ^= h >>> 32;
+    return (int) (h ^ (h >>> 16));
+  }
+}
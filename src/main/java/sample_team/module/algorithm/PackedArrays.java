@@ -0,0 +1,59 @@
+package sample_team.module.algorithm;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Packs primitive arrays into base64 strings, so that large tables can be
+ * stored in {@link adf.core.agent.precompute.PrecomputeData} as one string
+ * each instead of as boxed lists.
+ */
+final class PackedArrays {
+
+  private PackedArrays() {
+  }
+
+
+  static String encode(int[] values) {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * Integer.BYTES);
+    buffer.asIntBuffer().put(values);
+    return Base64.getEncoder().encodeToString(buffer.array());
+  }
+
+
+  static String encode(double[] values) {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES);
+    buffer.asDoubleBuffer().put(values);
+    return Base64.getEncoder().encodeToString(buffer.array());
+  }
+
+
+  /**
+   * Decodes a string written by {@link #encode(int[])}, or returns null if
+   * {@code text} is null.
+   */
+  static int[] decodeInts(String text) {
+    if (text == null) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(text));
+    int[] values = new int[buffer.remaining() / Integer.BYTES];
+    buffer.asIntBuffer().get(values);
+    return values;
+  }
+
+
+  /**
+   * Decodes a string written by {@link #encode(double[])}, or returns null if
+   * {@code text} is null.
+   */
+  static double[] decodeDoubles(String text) {
+    if (text == null) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(text));
+    double[] values = new double[buffer.remaining() / Double.BYTES];
+    buffer.asDoubleBuffer().get(values);
+    return values;
+  }
+}
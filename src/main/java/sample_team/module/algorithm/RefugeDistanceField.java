@@ -0,0 +1,149 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.info.WorldInfo;
+import adf.core.agent.precompute.PrecomputeData;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * The nearest refuge of every area and the path cost to it, from one
+ * multi-source Dijkstra search over an {@link AreaGraph} seeded with all
+ * refuges.
+ * <p>
+ * Both tables are plain int arrays indexed by graph node; costs are rounded
+ * down to whole millimetres. They can be written to and read back from the
+ * precompute data, and are built once per map and shared by all agents
+ * otherwise. Blockades are not taken into account.
+ */
+public final class RefugeDistanceField {
+
+  private static final int UNREACHABLE = -1;
+  private static final Map<Long, RefugeDistanceField> SHARED = new ConcurrentHashMap<>();
+
+  private final AreaGraph graph;
+  // nearest[v]: node of the refuge nearest to v, or UNREACHABLE
+  private final int[] nearest;
+  // distances[v]: path cost from v to nearest[v], or UNREACHABLE
+  private final int[] distances;
+
+  private RefugeDistanceField(AreaGraph graph, int[] nearest,
+      int[] distances) {
+    this.graph = graph;
+    this.nearest = nearest;
+    this.distances = distances;
+  }
+
+
+  /**
+   * Returns the field of the world's map, building it on first use; agents
+   * on the same map share one instance.
+   */
+  public static RefugeDistanceField of(WorldInfo worldInfo) {
+    AreaGraph graph = AreaGraph.of(worldInfo);
+    return SHARED.computeIfAbsent(graph.getFingerprint(),
+        key -> build(graph, worldInfo.getEntityIDsOfType(
+            StandardEntityURN.REFUGE).toArray(new EntityID[0])));
+  }
+
+
+  public static RefugeDistanceField build(AreaGraph graph,
+      EntityID[] refuges) {
+    int[] sources = new int[refuges.length];
+    int count = 0;
+    for (EntityID refuge : refuges) {
+      int node = graph.indexOf(refuge);
+      if (node >= 0) {
+        sources[count++] = node;
+      }
+    }
+    int n = graph.size();
+    int[] nearest = new int[n];
+    int[] distances = new int[n];
+    GraphSearch search = new GraphSearch(graph);
+    search.dijkstra(sources, count);
+    for (int v = 0; v < n; v++) {
+      if (count > 0 && search.isReached(v)) {
+        nearest[v] = sources[search.getOrigin(v)];
+        distances[v] = (int) Math.min(search.getDistance(v),
+            Integer.MAX_VALUE);
+      } else {
+        nearest[v] = UNREACHABLE;
+        distances[v] = UNREACHABLE;
+      }
+    }
+    return new RefugeDistanceField(graph, nearest, distances);
+  }
+
+
+  /**
+   * Stores the tables under {@code prefix}.
+   */
+  public void write(PrecomputeData precomputeData, String prefix) {
+    precomputeData.setString(prefix + ".fingerprint",
+        Long.toHexString(this.graph.getFingerprint()));
+    precomputeData.setString(prefix + ".nearest",
+        PackedArrays.encode(this.nearest));
+    precomputeData.setString(prefix + ".distances",
+        PackedArrays.encode(this.distances));
+  }
+
+
+  /**
+   * Reads tables written by {@link #write(PrecomputeData, String)}, or
+   * returns null if there are none or they were built for another map.
+   * Agents on the same map share the decoded tables.
+   */
+  public static RefugeDistanceField read(PrecomputeData precomputeData,
+      String prefix, AreaGraph graph) {
+    String fingerprint = precomputeData.getString(prefix + ".fingerprint");
+    if (fingerprint == null
+        || !fingerprint.equals(Long.toHexString(graph.getFingerprint()))) {
+      return null;
+    }
+    return SHARED.computeIfAbsent(graph.getFingerprint(), key -> {
+      int[] nearest = PackedArrays.decodeInts(
+          precomputeData.getString(prefix + ".nearest"));
+      int[] distances = PackedArrays.decodeInts(
+          precomputeData.getString(prefix + ".distances"));
+      if (nearest == null || distances == null
+          || nearest.length != graph.size()
+          || distances.length != graph.size()) {
+        return null;
+      }
+      return new RefugeDistanceField(graph, nearest, distances);
+    });
+  }
+
+
+  public AreaGraph getGraph() {
+    return this.graph;
+  }
+
+
+  /**
+   * The refuge nearest to the area {@code id}, or null if no refuge can be
+   * reached from it.
+   */
+  public EntityID getNearestRefuge(EntityID id) {
+    int node = this.graph.indexOf(id);
+    if (node < 0 || this.nearest[node] == UNREACHABLE) {
+      return null;
+    }
+    return this.graph.getID(this.nearest[node]);
+  }
+
+
+  /**
+   * Path cost from the area {@code id} to its nearest refuge, or
+   * {@link Double#MAX_VALUE} if no refuge can be reached from it.
+   */
+  public double getDistance(EntityID id) {
+    int node = this.graph.indexOf(id);
+    if (node < 0 || this.distances[node] == UNREACHABLE) {
+      return Double.MAX_VALUE;
+    }
+    return this.distances[node];
+  }
+}
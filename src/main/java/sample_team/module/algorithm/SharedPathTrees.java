@@ -0,0 +1,172 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.info.WorldInfo;
+import java.util.Map;
+import java.util.WeakHashMap;
+import rescuecore2.standard.entities.Road;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Shortest-path trees shared by all modules of one agent.
+ * <p>
+ * Search, the detectors and the ext-actions all plan from the agent's
+ * position in the same tick. Asking this service for the tree of that
+ * position runs one Dijkstra sweep for all of them; the tree is kept until
+ * the source moves or a road penalty changes. A few trees of other sources
+ * are kept as well and the least recently used one is recomputed for a new
+ * source.
+ * <p>
+ * Like the graph it is built on, the service is created once per agent by
+ * {@link #of(WorldInfo)}. It is not thread-safe; an agent runs its modules
+ * on one thread.
+ */
+public final class SharedPathTrees {
+
+  private static final int CAPACITY = 4;
+
+  private static final Map<WorldInfo, SharedPathTrees> SERVICES = new WeakHashMap<>();
+
+  private final AreaGraph graph;
+  private final double[] penalties;
+  private final ShortestPathTree[] trees;
+  private final long[] lastUsed;
+  private long clock;
+  private int penaltyTime;
+
+  SharedPathTrees(AreaGraph graph) {
+    this.graph = graph;
+    this.penalties = new double[graph.size()];
+    this.trees = new ShortestPathTree[CAPACITY];
+    this.lastUsed = new long[CAPACITY];
+    this.penaltyTime = -1;
+  }
+
+
+  /**
+   * Returns the service of the agent that owns {@code worldInfo}, creating
+   * it on first use.
+   */
+  public static SharedPathTrees of(WorldInfo worldInfo) {
+    synchronized (SERVICES) {
+      SharedPathTrees trees = SERVICES.get(worldInfo);
+      if (trees == null) {
+        trees = new SharedPathTrees(AreaGraph.of(worldInfo));
+        SERVICES.put(worldInfo, trees);
+      }
+      return trees;
+    }
+  }
+
+
+  public AreaGraph getGraph() {
+    return this.graph;
+  }
+
+
+  /**
+   * Makes roads with blockades cost {@code penalty} more to enter. Only the
+   * first call of a tick does any work: it looks at all roads the first
+   * time and at the changed entities after that.
+   */
+  public void updatePenalties(WorldInfo worldInfo, int time, double penalty) {
+    if (time == this.penaltyTime) {
+      return;
+    }
+    if (this.penaltyTime < 0) {
+      for (StandardEntity entity : worldInfo.getEntitiesOfType(
+          StandardEntityURN.ROAD, StandardEntityURN.HYDRANT)) {
+        this.updatePenalty(entity, penalty);
+      }
+    } else {
+      for (EntityID id : worldInfo.getChanged().getChangedEntities()) {
+        this.updatePenalty(worldInfo.getEntity(id), penalty);
+      }
+    }
+    this.penaltyTime = time;
+  }
+
+
+  private void updatePenalty(StandardEntity entity, double penalty) {
+    if (!(entity instanceof Road)) {
+      return;
+    }
+    int node = this.graph.indexOf(entity.getID());
+    if (node < 0) {
+      return;
+    }
+    Road road = (Road) entity;
+    boolean blocked = road.isBlockadesDefined()
+        && !road.getBlockades().isEmpty();
+    this.setPenalty(node, blocked ? penalty : 0.0D);
+  }
+
+
+  // sets the extra cost of entering node for all trees; trees recompute on
+  // their next use only if the value changed
+  void setPenalty(int node, double penalty) {
+    this.penalties[node] = penalty;
+    for (ShortestPathTree tree : this.trees) {
+      if (tree != null) {
+        tree.setPenalty(node, penalty);
+      }
+    }
+  }
+
+
+  /**
+   * The up-to-date shortest-path tree rooted at the area {@code source}.
+   * The tree stays valid until the next call of
+   * {@link #updatePenalties(WorldInfo, int, double)} or of this method.
+   */
+  public ShortestPathTree from(EntityID source) {
+    int slot = this.find(this.graph.indexOf(source));
+    if (this.trees[slot] == null) {
+      ShortestPathTree tree = new ShortestPathTree(this.graph);
+      for (int v = 0; v < this.penalties.length; v++) {
+        if (this.penalties[v] != 0.0D) {
+          tree.setPenalty(v, this.penalties[v]);
+        }
+      }
+      this.trees[slot] = tree;
+    }
+    this.lastUsed[slot] = ++this.clock;
+    this.trees[slot].setSource(source);
+    return this.trees[slot];
+  }
+
+
+  // the tree of node if there is one, else an empty or the least recently
+  // used slot
+  private int find(int node) {
+    int slot = 0;
+    for (int i = 0; i < CAPACITY; i++) {
+      ShortestPathTree tree = this.trees[i];
+      if (tree == null) {
+        return i;
+      }
+      if (node >= 0 && tree.getSource() == node) {
+        return i;
+      }
+      if (this.lastUsed[i] < this.lastUsed[slot]) {
+        slot = i;
+      }
+    }
+    return slot;
+  }
+
+
+  /**
+   * The number of Dijkstra sweeps run by all trees so far.
+   */
+  public int getComputationCount() {
+    int count = 0;
+    for (ShortestPathTree tree : this.trees) {
+      if (tree != null) {
+        count += tree.getComputationCount();
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,151 @@
+package sample_team.module.algorithm;
+
+import adf.core.agent.communication.MessageManager;
+import adf.core.agent.develop.DevelopData;
+import adf.core.agent.info.AgentInfo;
+import adf.core.agent.info.ScenarioInfo;
+import adf.core.agent.info.WorldInfo;
+import adf.core.agent.module.ModuleManager;
+import adf.core.component.module.algorithm.PathPlanning;
+import adf.core.debug.DefaultLogger;
+import java.util.Collection;
+import java.util.List;
+import org.apache.log4j.Logger;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * PathPlanning that answers from the agent's {@link SharedPathTrees}, so
+ * every module configured with it plans from the same shortest-path tree:
+ * Search, the road detector and the ext-actions all planning from the
+ * agent's position cost one Dijkstra sweep per tick together.
+ * <p>
+ * Edges cost the distance between area centres, like the default
+ * DijkstraPathPlanning. With a positive
+ * {@code sample_team.module.algorithm.SharedTreePathPlanning.blockadePenalty}
+ * entering a road that has blockades costs that much more; all modules of an
+ * agent should use the same value since they share the trees.
+ * <p>
+ * Both {@code getDistance} methods report the length between area centres
+ * of the path this module would plan, without penalties, like
+ * DijkstraPathPlanning; penalties only choose the path.
+ * {@link Double#MAX_VALUE} means there is no path.
+ */
+public class SharedTreePathPlanning extends PathPlanning {
+
+  private EntityID from;
+  private Collection<EntityID> targets;
+  private List<EntityID> result;
+  private double resultDistance;
+
+  private double blockadePenalty;
+
+  private SharedPathTrees trees;
+
+  private Logger logger;
+
+  public SharedTreePathPlanning(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
+    super(ai, wi, si, moduleManager, developData);
+    this.logger = DefaultLogger.getLogger(agentInfo.me());
+    this.blockadePenalty = developData.getDouble(
+        "sample_team.module.algorithm.SharedTreePathPlanning.blockadePenalty",
+        0.0D);
+  }
+
+
+  @Override
+  public PathPlanning updateInfo(MessageManager messageManager) {
+    super.updateInfo(messageManager);
+    if (this.getCountUpdateInfo() >= 2) {
+      return this;
+    }
+    if (this.blockadePenalty > 0.0D) {
+      this.trees().updatePenalties(this.worldInfo, this.agentInfo.getTime(),
+          this.blockadePenalty);
+    }
+    return this;
+  }
+
+
+  @Override
+  public List<EntityID> getResult() {
+    return this.result;
+  }
+
+
+  @Override
+  public PathPlanning setFrom(EntityID id) {
+    this.from = id;
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning setDestination(Collection<EntityID> targets) {
+    this.targets = targets;
+    return this;
+  }
+
+
+  @Override
+  public PathPlanning calc() {
+    this.result = null;
+    this.resultDistance = 0.0D;
+    if (this.from == null || this.targets == null) {
+      return this;
+    }
+    int computations = this.trees().getComputationCount();
+    ShortestPathTree tree = this.trees().from(this.from);
+    EntityID nearest = null;
+    double nearestDistance = Double.MAX_VALUE;
+    for (EntityID target : this.targets) {
+      double distance = tree.getDistance(target);
+      if (distance < nearestDistance) {
+        nearestDistance = distance;
+        nearest = target;
+      }
+    }
+    if (nearest != null) {
+      this.result = tree.getPath(nearest);
+      this.resultDistance = this.pathDistance(this.result);
+    }
+    logger.debug((this.trees().getComputationCount() > computations
+        ? "computed" : "reused") + " tree, path: " + this.result);
+    return this;
+  }
+
+
+  @Override
+  public double getDistance() {
+    return this.resultDistance;
+  }
+
+
+  @Override
+  public double getDistance(EntityID from, EntityID dest) {
+    List<EntityID> path = this.trees().from(from).getPath(dest);
+    return path != null ? this.pathDistance(path) : Double.MAX_VALUE;
+  }
+
+
+  private SharedPathTrees trees() {
+    if (this.trees == null) {
+      this.trees = SharedPathTrees.of(this.worldInfo);
+    }
+    return this.trees;
+  }
+
+
+  // the length of the path between area centres, without penalties
+  private double pathDistance(List<EntityID> path) {
+    if (path == null) {
+      return 0.0D;
+    }
+    AreaGraph graph = this.trees().getGraph();
+    double distance = 0.0D;
+    for (int i = 1; i < path.size(); i++) {
+      distance += graph.getLineDistance(graph.indexOf(path.get(i - 1)),
+          graph.indexOf(path.get(i)));
+    }
+    return distance;
+  }
+}
@@ -0,0 +1,116 @@
+package sample_team.module.algorithm;
+
+import java.util.List;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Full shortest-path tree from one area that is kept until its source or the
+ * node penalties change, so any number of distance and path queries from the
+ * same position cost one Dijkstra sweep in total.
+ * <p>
+ * Penalties are added to every edge entering a node (see
+ * {@link GraphSearch#setNodePenalties(double[])}); they let the owner make
+ * blocked roads more expensive without rebuilding the graph.
+ */
+public final class ShortestPathTree {
+
+  private final AreaGraph graph;
+  private final GraphSearch search;
+  private final double[] penalties;
+  private int source;
+  private boolean dirty;
+  private int computations;
+
+  public ShortestPathTree(AreaGraph graph) {
+    this.graph = graph;
+    this.search = new GraphSearch(graph);
+    this.penalties = new double[graph.size()];
+    this.search.setNodePenalties(this.penalties);
+    this.source = -1;
+    this.dirty = true;
+  }
+
+
+  public AreaGraph getGraph() {
+    return this.graph;
+  }
+
+
+  /**
+   * Sets the extra cost of entering {@code node}; the tree is recomputed on
+   * the next {@link #setSource(EntityID)} if the value changed.
+   */
+  public void setPenalty(int node, double penalty) {
+    if (this.penalties[node] != penalty) {
+      this.penalties[node] = penalty;
+      this.dirty = true;
+    }
+  }
+
+
+  public double getPenalty(int node) {
+    return this.penalties[node];
+  }
+
+
+  /**
+   * The root of the tree, or -1 if none was set.
+   */
+  public int getSource() {
+    return this.source;
+  }
+
+
+  /**
+   * Moves the root of the tree to the area {@code id}, recomputing the tree
+   * only if the root or a penalty changed.
+   *
+   * @return whether the tree was recomputed
+   */
+  public boolean setSource(EntityID id) {
+    int node = this.graph.indexOf(id);
+    if (node == this.source && !this.dirty) {
+      return false;
+    }
+    this.source = node;
+    this.dirty = false;
+    if (node >= 0) {
+      this.search.dijkstra(node, null, 0);
+      this.computations++;
+    }
+    return true;
+  }
+
+
+  /**
+   * Path cost from the source to the area {@code id}, or
+   * {@link Double#MAX_VALUE} if it cannot be reached.
+   */
+  public double getDistance(EntityID id) {
+    int node = this.graph.indexOf(id);
+    if (node < 0 || this.source < 0) {
+      return Double.MAX_VALUE;
+    }
+    return this.search.getDistance(node);
+  }
+
+
+  /**
+   * The areas from the source to {@code id}, both included, or null if it
+   * cannot be reached.
+   */
+  public List<EntityID> getPath(EntityID id) {
+    if (this.source < 0) {
+      return null;
+    }
+    return this.search.getPath(this.graph.indexOf(id));
+  }
+
+
+  /**
+   * The number of Dijkstra sweeps run so far.
+   */
+  public int getComputationCount() {
+    return this.computations;
+  }
+}
@@ -1,35 +1,50 @@
 package sample_team.module.complex;
 
 import adf.core.agent.communication.MessageManager;
+import adf.core.agent.communication.standard.bundle.information.MessageBuilding;
 import adf.core.agent.develop.DevelopData;
 import adf.core.agent.info.AgentInfo;
 import adf.core.agent.info.ScenarioInfo;
 import adf.core.agent.info.WorldInfo;
 import adf.core.agent.module.ModuleManager;
+import adf.core.component.communication.CommunicationMessage;
 import adf.core.component.module.algorithm.Clustering;
 import adf.core.component.module.complex.BuildingDetector;
 import adf.core.debug.DefaultLogger;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import org.apache.log4j.Logger;
 import rescuecore2.standard.entities.Building;
 import rescuecore2.standard.entities.StandardEntity;
 import rescuecore2.standard.entities.StandardEntityURN;
 import rescuecore2.worldmodel.EntityID;
+import sample_team.module.util.ModuleLatency;
+import sample_team.module.util.TopK;
 
 public class SampleBuildingDetector extends BuildingDetector {
 
+  private static final Set<StandardEntityURN> TARGET_URNS = EnumSet.of(
+      StandardEntityURN.BUILDING, StandardEntityURN.GAS_STATION,
+      StandardEntityURN.AMBULANCE_CENTRE, StandardEntityURN.FIRE_STATION,
+      StandardEntityURN.POLICE_OFFICE);
+
   private EntityID result;
+  // burning buildings, kept up to date from the changed entities of each tick
+  private Set<Building> fieryBuildings;
+  // the part of fieryBuildings inside this agent's cluster
+  private Set<Building> clusterFieryBuildings;
+  private Set<EntityID> clusterEntityIDs;
   private Clustering clustering;
   private Logger logger;
+  private ModuleLatency latency;
 
   public SampleBuildingDetector(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
     super(ai, wi, si, moduleManager, developData);
     logger = DefaultLogger.getLogger(agentInfo.me());
+    this.latency = ModuleLatency.of(ai, si, developData,
+        "SampleBuildingDetector");
     this.clustering = moduleManager.getModule(
         "SampleBuildingDetector.Clustering",
         "sample_team.module.algorithm.KMeansClustering");
@@ -39,93 +54,96 @@ public class SampleBuildingDetector extends BuildingDetector {
 
   @Override
   public BuildingDetector updateInfo(MessageManager messageManager) {
+    long start = this.latency.start();
     logger.debug("Time:" + agentInfo.getTime());
     super.updateInfo(messageManager);
+    if (this.fieryBuildings == null) {
+      this.initFieryBuildings();
+    } else {
+      for (EntityID id : this.worldInfo.getChanged().getChangedEntities()) {
+        this.updateFieryBuilding(id);
+      }
+      for (CommunicationMessage message : messageManager
+          .getReceivedMessageList(MessageBuilding.class)) {
+        this.updateFieryBuilding(((MessageBuilding) message).getBuildingID());
+      }
+    }
+    this.latency.stopUpdateInfo(start);
     return this;
   }
 
 
   @Override
   public BuildingDetector calc() {
+    long start = this.latency.start();
     this.result = this.calcTarget();
+    this.latency.stopCalc(start);
     return this;
   }
 
 
   private EntityID calcTarget() {
-    Collection<StandardEntity> entities = this.worldInfo.getEntitiesOfType(
-        StandardEntityURN.BUILDING, StandardEntityURN.GAS_STATION,
-        StandardEntityURN.AMBULANCE_CENTRE, StandardEntityURN.FIRE_STATION,
-        StandardEntityURN.POLICE_OFFICE);
-
-    List<Building> fireyBuildings = filterFiery(entities);
-    List<Building> clusterBuildings = filterInCluster(fireyBuildings);
-    List<Building> targets = clusterBuildings;
-    if (clusterBuildings.isEmpty())
-      targets = fireyBuildings;
+    if (this.fieryBuildings == null) {
+      this.initFieryBuildings();
+    }
+    Set<Building> targets = this.clusterFieryBuildings;
+    if (targets.isEmpty())
+      targets = this.fieryBuildings;
     logger.debug("FieryBuildingsTargets: " + targets);
     if (targets.isEmpty())
       return null;
 
-    Collections.sort(targets, new DistanceSorter(worldInfo, agentInfo.me()));
-    Building selectedBuilding = targets.get(0);
+    StandardEntity me = this.agentInfo.me();
+    Building selectedBuilding = TopK.min(targets,
+        building -> targetKey(me, building));
     logger.debug("Selected:" + selectedBuilding);
     return selectedBuilding.getID();
   }
 
 
-  private List<Building>
-      filterFiery(Collection<? extends StandardEntity> input) {
-    ArrayList<Building> fireBuildings = new ArrayList<>();
-    for (StandardEntity entity : input) {
-      if (entity instanceof Building && ((Building) entity).isOnFire()) {
-        fireBuildings.add((Building) entity);
-      }
+  private void initFieryBuildings() {
+    int clusterIndex = clustering.getClusterIndex(this.agentInfo.getID());
+    this.clusterEntityIDs = new HashSet<>();
+    if (clusterIndex >= 0) {
+      this.clusterEntityIDs
+          .addAll(clustering.getClusterEntityIDs(clusterIndex));
+    }
+    this.fieryBuildings = new LinkedHashSet<>();
+    this.clusterFieryBuildings = new LinkedHashSet<>();
+    for (StandardEntity entity : this.worldInfo.getEntitiesOfType(TARGET_URNS
+        .toArray(new StandardEntityURN[0]))) {
+      this.updateFieryBuilding(entity.getID());
     }
-    return fireBuildings;
   }
 
 
-  private List<Building> filterInCluster(Collection<Building> targetAreas) {
-    int clusterIndex = clustering.getClusterIndex(this.agentInfo.getID());
-    List<Building> clusterTargets = new ArrayList<>();
-    HashSet<StandardEntity> inCluster = new HashSet<>(
-        clustering.getClusterEntities(clusterIndex));
-    for (Building target : targetAreas) {
-      if (inCluster.contains(target))
-        clusterTargets.add(target);
+  private void updateFieryBuilding(EntityID id) {
+    StandardEntity entity = this.worldInfo.getEntity(id);
+    if (!(entity instanceof Building)
+        || !TARGET_URNS.contains(entity.getStandardURN())) {
+      return;
+    }
+    Building building = (Building) entity;
+    if (building.isOnFire()) {
+      this.fieryBuildings.add(building);
+      if (this.clusterEntityIDs.contains(id)) {
+        this.clusterFieryBuildings.add(building);
+      }
+    } else if (this.fieryBuildings.remove(building)) {
+      this.clusterFieryBuildings.remove(building);
     }
-    return clusterTargets;
   }
 
 
-  @Override
-  public EntityID getTarget() {
-    return this.result;
+  // buildings burning at fieryness 3 (inferno) come last, the rest by distance
+  private long targetKey(StandardEntity reference, Building building) {
+    long distance = this.worldInfo.getDistance(reference, building);
+    return building.getFieryness() == 3 ? (1L << 32) + distance : distance;
   }
 
-  private class DistanceSorter implements Comparator<Building> {
 
-    private StandardEntity reference;
-    private WorldInfo worldInfo;
-
-    DistanceSorter(WorldInfo wi, StandardEntity reference) {
-      this.reference = reference;
-      this.worldInfo = wi;
-    }
-
-
-    public int compare(Building a, Building b) {
-      if (a.getFieryness() == 3 && b.getFieryness() != 3) {
-        return 1;
-      }
-      if (a.getFieryness() != 3 && b.getFieryness() == 3) {
-        return -1;
-      }
-      int d1 = this.worldInfo.getDistance(this.reference, a);
-      int d2 = this.worldInfo.getDistance(this.reference, b);
-      return d1 - d2;
-
-    }
+  @Override
+  public EntityID getTarget() {
+    return this.result;
   }
 }
@@ -4,36 +4,68 @@ import static rescuecore2.standard.entities.StandardEntityURN.AMBULANCE_TEAM;
 import static rescuecore2.standard.entities.StandardEntityURN.CIVILIAN;
 import static rescuecore2.standard.entities.StandardEntityURN.REFUGE;
 import adf.core.agent.communication.MessageManager;
+import adf.core.agent.communication.standard.bundle.information.MessageCivilian;
 import adf.core.agent.develop.DevelopData;
 import adf.core.agent.info.AgentInfo;
 import adf.core.agent.info.ScenarioInfo;
 import adf.core.agent.info.WorldInfo;
 import adf.core.agent.module.ModuleManager;
+import adf.core.agent.precompute.PrecomputeData;
+import adf.core.component.communication.CommunicationMessage;
 import adf.core.component.module.algorithm.Clustering;
 import adf.core.component.module.complex.HumanDetector;
 import adf.core.debug.DefaultLogger;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import org.apache.log4j.Logger;
 import rescuecore2.standard.entities.Human;
+import rescuecore2.standard.entities.Road;
 import rescuecore2.standard.entities.StandardEntity;
 import rescuecore2.standard.entities.StandardEntityURN;
 import rescuecore2.worldmodel.EntityID;
+import sample_team.module.algorithm.AreaGraph;
+import sample_team.module.algorithm.RefugeDistanceField;
+import sample_team.module.algorithm.ShortestPathTree;
+import sample_team.module.util.ModuleLatency;
+import sample_team.module.util.TopK;
 
 public class SampleHumanDetector extends HumanDetector {
 
+  private static final String KEY_REFUGE_FIELD = "SampleHumanDetector.refuges";
+
   private Clustering clustering;
 
   private EntityID result;
+  // valid buried civilians, kept up to date from the changed entities
+  private Set<Human> rescueTargets;
+  // the part of rescueTargets positioned inside this agent's cluster
+  private Set<Human> clusterRescueTargets;
+  private Set<EntityID> clusterEntityIDs;
+
+  // rank targets by path cost from the agent's area instead of line distance
+  private boolean rankByPathCost;
+  // extra cost of entering a road with blockades on it
+  private double blockadePenalty;
+  private ShortestPathTree pathTree;
+  // weight of the path cost from a target's area to its nearest refuge
+  private double refugeWeight;
+  private RefugeDistanceField refugeField;
 
   private Logger logger;
+  private ModuleLatency latency;
 
   public SampleHumanDetector(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
     super(ai, wi, si, moduleManager, developData);
     logger = DefaultLogger.getLogger(agentInfo.me());
+    this.latency = ModuleLatency.of(ai, si, developData,
+        "SampleHumanDetector");
+    this.rankByPathCost = developData
+        .getBoolean("SampleHumanDetector.rankByPathCost", false);
+    this.blockadePenalty = developData
+        .getDouble("SampleHumanDetector.blockadePenalty", 50000.0D);
+    this.refugeWeight = developData
+        .getDouble("SampleHumanDetector.refugeWeight", 0.0D);
     this.clustering = moduleManager.getModule("SampleHumanDetector.Clustering",
         "sample_team.module.algorithm.KMeansClustering");
     registerModule(this.clustering);
@@ -41,47 +73,125 @@ public class SampleHumanDetector extends HumanDetector {
 
 
   @Override
-  public HumanDetector updateInfo(MessageManager messageManager) {
-    logger.debug("Time:" + agentInfo.getTime());
-    super.updateInfo(messageManager);
+  public HumanDetector precompute(PrecomputeData precomputeData) {
+    super.precompute(precomputeData);
+    if (this.getCountPrecompute() >= 2) {
+      return this;
+    }
+    RefugeDistanceField.of(this.worldInfo).write(precomputeData,
+        KEY_REFUGE_FIELD);
     return this;
   }
 
 
   @Override
-  public HumanDetector calc() {
-    Human transportHuman = this.agentInfo.someoneOnBoard();
-    if (transportHuman != null) {
-      logger.debug("someoneOnBoard:" + transportHuman);
-      this.result = transportHuman.getID();
+  public HumanDetector resume(PrecomputeData precomputeData) {
+    super.resume(precomputeData);
+    if (this.getCountResume() >= 2) {
       return this;
     }
-    if (this.result != null) {
-      Human target = (Human) this.worldInfo.getEntity(this.result);
-      if (!isValidHuman(target)) {
-        logger.debug("Invalid Human:" + target + " ==>reset target");
-        this.result = null;
+    if (this.refugeWeight > 0.0D) {
+      this.refugeField = RefugeDistanceField.read(precomputeData,
+          KEY_REFUGE_FIELD, AreaGraph.of(this.worldInfo));
+      if (this.refugeField == null) {
+        this.refugeField = RefugeDistanceField.of(this.worldInfo);
       }
     }
-    if (this.result == null) {
-      this.result = calcTarget();
+    return this;
+  }
+
+
+  @Override
+  public HumanDetector preparate() {
+    super.preparate();
+    if (this.getCountPreparate() >= 2) {
+      return this;
+    }
+    if (this.refugeWeight > 0.0D) {
+      this.refugeField = RefugeDistanceField.of(this.worldInfo);
     }
     return this;
   }
 
 
+  @Override
+  public HumanDetector updateInfo(MessageManager messageManager) {
+    long start = this.latency.start();
+    logger.debug("Time:" + agentInfo.getTime());
+    super.updateInfo(messageManager);
+    if (this.rankByPathCost && this.pathTree == null) {
+      this.initPathTree();
+    } else if (this.pathTree != null) {
+      for (EntityID id : this.worldInfo.getChanged().getChangedEntities()) {
+        this.updateBlockadePenalty(id);
+      }
+    }
+    if (this.rescueTargets == null) {
+      this.initRescueTargets();
+    } else {
+      for (EntityID id : this.worldInfo.getChanged().getChangedEntities()) {
+        this.updateRescueTarget(id);
+      }
+      for (CommunicationMessage message : messageManager
+          .getReceivedMessageList(MessageCivilian.class)) {
+        this.updateRescueTarget(((MessageCivilian) message).getAgentID());
+      }
+    }
+    this.latency.stopUpdateInfo(start);
+    return this;
+  }
+
+
+  @Override
+  public HumanDetector calc() {
+    long start = this.latency.start();
+    try {
+      Human transportHuman = this.agentInfo.someoneOnBoard();
+      if (transportHuman != null) {
+        logger.debug("someoneOnBoard:" + transportHuman);
+        this.result = transportHuman.getID();
+        return this;
+      }
+      if (this.result != null) {
+        Human target = (Human) this.worldInfo.getEntity(this.result);
+        if (!isValidHuman(target)) {
+          logger.debug("Invalid Human:" + target + " ==>reset target");
+          this.result = null;
+        }
+      }
+      if (this.result == null) {
+        this.result = calcTarget();
+      }
+      return this;
+    } finally {
+      this.latency.stopCalc(start);
+    }
+  }
+
+
   private EntityID calcTarget() {
-    List<Human> rescueTargets = filterRescueTargets(
-        this.worldInfo.getEntitiesOfType(CIVILIAN));
-    List<Human> rescueTargetsInCluster = filterInCluster(rescueTargets);
-    List<Human> targets = rescueTargetsInCluster;
+    if (this.rescueTargets == null) {
+      this.initRescueTargets();
+    }
+    Set<Human> targets = this.clusterRescueTargets;
     if (targets.isEmpty())
-      targets = rescueTargets;
+      targets = this.rescueTargets;
 
     logger.debug("Targets:" + targets);
     if (!targets.isEmpty()) {
-      targets.sort(new DistanceSorter(this.worldInfo, this.agentInfo.me()));
-      Human selected = targets.get(0);
+      StandardEntity me = this.agentInfo.me();
+      Human selected;
+      if (this.pathTree != null) {
+        if (this.pathTree.setSource(this.agentInfo.getPosition())) {
+          logger.debug("path tree from " + this.agentInfo.getPosition());
+        }
+        selected = TopK.min(targets,
+            human -> pathCostKey(me, human) + refugeCostKey(human));
+      } else {
+        selected = TopK.min(targets,
+            human -> this.worldInfo.getDistance(me, human)
+                + refugeCostKey(human));
+      }
       logger.debug("Selected:" + selected);
       return selected.getID();
     }
@@ -96,64 +206,91 @@ public class SampleHumanDetector extends HumanDetector {
   }
 
 
-  private List<Human>
-      filterRescueTargets(Collection<? extends StandardEntity> list) {
-    List<Human> rescueTargets = new ArrayList<>();
-    for (StandardEntity next : list) {
-      if (!(next instanceof Human))
-        continue;
-      Human h = (Human) next;
-      if (!isValidHuman(h))
-        continue;
-      if (h.getBuriedness() == 0)
-        continue;
-      rescueTargets.add(h);
-    }
-    return rescueTargets;
+  private void initRescueTargets() {
+    int clusterIndex = clustering.getClusterIndex(this.agentInfo.getID());
+    this.clusterEntityIDs = new HashSet<>();
+    if (clusterIndex >= 0) {
+      this.clusterEntityIDs
+          .addAll(clustering.getClusterEntityIDs(clusterIndex));
+    }
+    this.rescueTargets = new LinkedHashSet<>();
+    this.clusterRescueTargets = new LinkedHashSet<>();
+    for (StandardEntity entity : this.worldInfo.getEntitiesOfType(CIVILIAN)) {
+      this.updateRescueTarget(entity.getID());
+    }
   }
 
 
-  private List<Human>
-      filterInCluster(Collection<? extends StandardEntity> entities) {
-    int clusterIndex = clustering.getClusterIndex(this.agentInfo.getID());
-    List<Human> filter = new ArrayList<>();
-    HashSet<StandardEntity> inCluster = new HashSet<>(
-        clustering.getClusterEntities(clusterIndex));
-    for (StandardEntity next : entities) {
-      if (!(next instanceof Human))
-        continue;
-      Human h = (Human) next;
-      if (!h.isPositionDefined())
-        continue;
-      StandardEntity position = this.worldInfo.getPosition(h);
-      if (position == null)
-        continue;
-      if (!inCluster.contains(position))
-        continue;
-      filter.add(h);
-    }
-    return filter;
+  private void initPathTree() {
+    this.pathTree = new ShortestPathTree(AreaGraph.of(this.worldInfo));
+    for (StandardEntity entity : this.worldInfo.getEntitiesOfType(
+        StandardEntityURN.ROAD, StandardEntityURN.HYDRANT)) {
+      this.updateBlockadePenalty(entity.getID());
+    }
+  }
+
 
+  private void updateBlockadePenalty(EntityID id) {
+    StandardEntity entity = this.worldInfo.getEntity(id);
+    if (!(entity instanceof Road)) {
+      return;
+    }
+    Road road = (Road) entity;
+    int node = this.pathTree.getGraph().indexOf(id);
+    if (node >= 0) {
+      boolean blocked = road.isBlockadesDefined()
+          && !road.getBlockades().isEmpty();
+      this.pathTree.setPenalty(node, blocked ? this.blockadePenalty : 0.0D);
+    }
   }
 
-  private class DistanceSorter implements Comparator<StandardEntity> {
 
-    private StandardEntity reference;
-    private WorldInfo worldInfo;
+  // reachable targets by path cost to their area, unreachable ones after
+  // them by line distance
+  private long pathCostKey(StandardEntity reference, Human human) {
+    double cost = this.pathTree.getDistance(human.getPosition());
+    if (cost < Double.MAX_VALUE) {
+      return (long) cost;
+    }
+    return (1L << 40) + this.worldInfo.getDistance(reference, human);
+  }
+
 
-    DistanceSorter(WorldInfo wi, StandardEntity reference) {
-      this.reference = reference;
-      this.worldInfo = wi;
+  // weighted cost of carrying the target on to the nearest refuge; targets
+  // from which no refuge can be reached come last
+  private long refugeCostKey(Human human) {
+    if (this.refugeField == null) {
+      return 0L;
     }
+    double cost = this.refugeField.getDistance(human.getPosition());
+    if (cost < Double.MAX_VALUE) {
+      return (long) (this.refugeWeight * cost);
+    }
+    return 1L << 36;
+  }
 
 
-    public int compare(StandardEntity a, StandardEntity b) {
-      int d1 = this.worldInfo.getDistance(this.reference, a);
-      int d2 = this.worldInfo.getDistance(this.reference, b);
-      return d1 - d2;
+  // re-evaluates one entity after its HP, damage, buriedness or position
+  // may have changed
+  private void updateRescueTarget(EntityID id) {
+    StandardEntity entity = this.worldInfo.getEntity(id);
+    if (entity == null || entity.getStandardURN() != CIVILIAN) {
+      return;
+    }
+    Human human = (Human) entity;
+    if (isValidHuman(human) && human.getBuriedness() != 0) {
+      this.rescueTargets.add(human);
+      if (this.clusterEntityIDs.contains(human.getPosition())) {
+        this.clusterRescueTargets.add(human);
+      } else {
+        this.clusterRescueTargets.remove(human);
+      }
+    } else if (this.rescueTargets.remove(human)) {
+      this.clusterRescueTargets.remove(human);
     }
   }
 
+
   private boolean isValidHuman(StandardEntity entity) {
     if (entity == null)
       return false;
@@ -7,40 +7,67 @@ import static rescuecore2.standard.entities.StandardEntityURN.GAS_STATION;
 import static rescuecore2.standard.entities.StandardEntityURN.POLICE_FORCE;
 import static rescuecore2.standard.entities.StandardEntityURN.REFUGE;
 import adf.core.agent.communication.MessageManager;
+import adf.core.agent.communication.standard.bundle.information.MessageAmbulanceTeam;
+import adf.core.agent.communication.standard.bundle.information.MessageCivilian;
+import adf.core.agent.communication.standard.bundle.information.MessageFireBrigade;
+import adf.core.agent.communication.standard.bundle.information.MessagePoliceForce;
 import adf.core.agent.develop.DevelopData;
 import adf.core.agent.info.AgentInfo;
 import adf.core.agent.info.ScenarioInfo;
 import adf.core.agent.info.WorldInfo;
 import adf.core.agent.module.ModuleManager;
+import adf.core.component.communication.CommunicationMessage;
 import adf.core.component.module.algorithm.Clustering;
 import adf.core.component.module.algorithm.PathPlanning;
 import adf.core.component.module.complex.RoadDetector;
 import adf.core.debug.DefaultLogger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 import org.apache.log4j.Logger;
-import rescuecore2.standard.entities.Area;
 import rescuecore2.standard.entities.Human;
 import rescuecore2.standard.entities.Road;
 import rescuecore2.standard.entities.StandardEntity;
 import rescuecore2.standard.entities.StandardEntityURN;
 import rescuecore2.worldmodel.EntityID;
+import sample_team.module.algorithm.AreaGraph;
+import sample_team.module.algorithm.EntityIndex;
+import sample_team.module.util.ModuleLatency;
 
 public class SampleRoadDetector extends RoadDetector {
 
-  private Set<Area> openedAreas = new HashSet<>();
+  private static final Set<StandardEntityURN> HUMAN_URNS = EnumSet
+      .of(CIVILIAN, AMBULANCE_TEAM, FIRE_BRIGADE, POLICE_FORCE);
+
+  // sets of areas as bits over the node indices of the area graph
+  private AreaGraph graph;
+  private BitSet openedAreas;
+  // refuges, gas stations and areas with valid humans on them
+  private BitSet wantedAreas;
+  private BitSet clusterAreas;
+  // the node of every valid human by its index in humans, or -1, and the
+  // number of such humans per node
+  private EntityIndex humans;
+  private int[] humanNodes;
+  private int[] humanCounts;
   private Clustering clustering;
   private PathPlanning pathPlanning;
 
   private EntityID result;
   private Logger logger;
+  private ModuleLatency latency;
 
   public SampleRoadDetector(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
     super(ai, wi, si, moduleManager, developData);
     logger = DefaultLogger.getLogger(agentInfo.me());
+    this.latency = ModuleLatency.of(ai, si, developData,
+        "SampleRoadDetector");
+    this.graph = AreaGraph.of(wi);
+    this.openedAreas = new BitSet(this.graph.size());
     this.pathPlanning = moduleManager.getModule(
         "SampleRoadDetector.PathPlanning",
         "adf.impl.module.algorithm.DijkstraPathPlanning");
@@ -54,95 +81,176 @@ public class SampleRoadDetector extends RoadDetector {
 
   @Override
   public RoadDetector updateInfo(MessageManager messageManager) {
+    long start = this.latency.start();
     logger.debug("Time:" + agentInfo.getTime());
     super.updateInfo(messageManager);
 
-    // adding a road to the list only when its clearance is complete, rather than upon arrival, prevents clearing operations from stopping
+    boolean initialized = this.wantedAreas != null;
+    if (!initialized) {
+      this.initTargets();
+    }
     for (EntityID id : this.worldInfo.getChanged().getChangedEntities()) {
       StandardEntity entity = this.worldInfo.getEntity(id);
       if (entity instanceof Road) {
+        // adding a road to the list only when its clearance is complete, rather than upon arrival, prevents clearing operations from stopping
         Road road = (Road) entity;
         if (!road.isBlockadesDefined() || road.getBlockades().isEmpty()) {
-          if (entity instanceof Area) {
-            this.openedAreas.add((Area) entity);
-          }
+          this.markOpened(id);
         }
+      } else if (initialized) {
+        this.updateHuman(entity);
+      }
+    }
+    if (initialized) {
+      for (CommunicationMessage message : messageManager.getReceivedMessageList(
+          MessageCivilian.class, MessageAmbulanceTeam.class,
+          MessageFireBrigade.class, MessagePoliceForce.class)) {
+        this.updateHuman(this.worldInfo.getEntity(getAgentID(message)));
       }
     }
 
+    this.latency.stopUpdateInfo(start);
     return this;
   }
 
 
   @Override
   public RoadDetector calc() {
-    EntityID positionID = this.agentInfo.getPosition();
-    StandardEntity currentPosition = worldInfo.getEntity(positionID);
-    openedAreas.add((Area) currentPosition);
-    if (positionID.equals(result)) {
-      logger.debug("reach to " + currentPosition + " resetting target");
-      this.result = null;
-    }
-
-    if (this.result == null) {
-      HashSet<Area> currentTargets = calcTargets();
-      logger.debug("Targets: " + currentTargets);
-      if (currentTargets.isEmpty()) {
+    long start = this.latency.start();
+    try {
+      EntityID positionID = this.agentInfo.getPosition();
+      StandardEntity currentPosition = worldInfo.getEntity(positionID);
+      this.markOpened(positionID);
+      if (positionID.equals(result)) {
+        logger.debug("reach to " + currentPosition + " resetting target");
         this.result = null;
-        return this;
       }
-      this.pathPlanning.setFrom(positionID);
-      this.pathPlanning.setDestination(toEntityIds(currentTargets));
-      List<EntityID> path = this.pathPlanning.calc().getResult();
-      if (path != null && path.size() > 0) {
-        this.result = path.get(path.size() - 1);
+
+      if (this.result == null) {
+        if (this.wantedAreas == null) {
+          this.initTargets();
+        }
+        BitSet currentTargets = (BitSet) this.wantedAreas.clone();
+        currentTargets.and(this.clusterAreas);
+        currentTargets.andNot(this.openedAreas);
+        Collection<EntityID> targetIDs = toEntityIds(currentTargets);
+        logger.debug("Targets: " + targetIDs);
+        if (targetIDs.isEmpty()) {
+          this.result = null;
+          return this;
+        }
+        this.pathPlanning.setFrom(positionID);
+        this.pathPlanning.setDestination(targetIDs);
+        List<EntityID> path = this.pathPlanning.calc().getResult();
+        if (path != null && path.size() > 0) {
+          this.result = path.get(path.size() - 1);
+        }
+        logger.debug("Selected Target: " + this.result);
       }
-      logger.debug("Selected Target: " + this.result);
+      return this;
+    } finally {
+      this.latency.stopCalc(start);
     }
-    return this;
   }
 
 
-  private Collection<EntityID>
-      toEntityIds(Collection<? extends StandardEntity> entities) {
-    ArrayList<EntityID> eids = new ArrayList<>();
-    for (StandardEntity standardEntity : entities) {
-      eids.add(standardEntity.getID());
+  private Collection<EntityID> toEntityIds(BitSet nodes) {
+    ArrayList<EntityID> eids = new ArrayList<>(nodes.cardinality());
+    for (int node = nodes.nextSetBit(0); node >= 0;
+        node = nodes.nextSetBit(node + 1)) {
+      eids.add(this.graph.getID(node));
     }
     return eids;
   }
 
 
-  private HashSet<Area> calcTargets() {
-    HashSet<Area> targetAreas = new HashSet<>();
-    for (StandardEntity e : this.worldInfo.getEntitiesOfType(REFUGE,
+  private void initTargets() {
+    int n = this.graph.size();
+    this.clusterAreas = new BitSet(n);
+    int clusterIndex = clustering.getClusterIndex(this.agentInfo.getID());
+    if (clusterIndex >= 0) {
+      for (EntityID id : clustering.getClusterEntityIDs(clusterIndex)) {
+        int node = this.graph.indexOf(id);
+        if (node >= 0) {
+          this.clusterAreas.set(node);
+        }
+      }
+    }
+    this.wantedAreas = new BitSet(n);
+    this.humans = new EntityIndex(64);
+    this.humanNodes = new int[64];
+    this.humanCounts = new int[n];
+    for (EntityID id : this.worldInfo.getEntityIDsOfType(REFUGE,
         GAS_STATION)) {
-      targetAreas.add((Area) e);
+      int node = this.graph.indexOf(id);
+      if (node >= 0) {
+        this.wantedAreas.set(node);
+      }
     }
     for (StandardEntity e : this.worldInfo.getEntitiesOfType(CIVILIAN,
         AMBULANCE_TEAM, FIRE_BRIGADE, POLICE_FORCE)) {
-      if (isValidHuman(e)) {
-        Human h = (Human) e;
-        targetAreas.add((Area) worldInfo.getEntity(h.getPosition()));
+      this.updateHuman(e);
+    }
+  }
+
+
+  // moves a human's contribution to the area it is in now, if it is valid
+  private void updateHuman(StandardEntity entity) {
+    if (entity == null || !HUMAN_URNS.contains(entity.getStandardURN())) {
+      return;
+    }
+    int node = isValidHuman(entity)
+        ? this.graph.indexOf(((Human) entity).getPosition())
+        : -1;
+    int human = this.humans.indexOf(entity.getID());
+    if (human < 0) {
+      if (node < 0) {
+        return;
+      }
+      human = this.humans.add(entity.getID());
+      if (human == this.humanNodes.length) {
+        this.humanNodes = Arrays.copyOf(this.humanNodes, human * 2);
+      }
+      this.humanNodes[human] = -1;
+    }
+    int previous = this.humanNodes[human];
+    if (previous == node) {
+      return;
+    }
+    this.humanNodes[human] = node;
+    if (previous >= 0 && --this.humanCounts[previous] == 0) {
+      StandardEntityURN urn = this.worldInfo.getEntity(this.graph.getID(
+          previous)).getStandardURN();
+      if (urn != REFUGE && urn != GAS_STATION) {
+        this.wantedAreas.clear(previous);
       }
     }
-    HashSet<Area> inClusterTarget = filterInCluster(targetAreas);
-    inClusterTarget.removeAll(openedAreas);
-    return inClusterTarget;
+    if (node >= 0) {
+      this.humanCounts[node]++;
+      this.wantedAreas.set(node);
+    }
   }
 
 
-  private HashSet<Area> filterInCluster(HashSet<Area> targetAreas) {
-    int clusterIndex = clustering.getClusterIndex(this.agentInfo.getID());
-    HashSet<Area> clusterTargets = new HashSet<>();
-    HashSet<StandardEntity> inCluster = new HashSet<>(
-        clustering.getClusterEntities(clusterIndex));
-    for (Area target : targetAreas) {
-      if (inCluster.contains(target))
-        clusterTargets.add(target);
+  private void markOpened(EntityID id) {
+    int node = this.graph.indexOf(id);
+    if (node >= 0) {
+      this.openedAreas.set(node);
+    }
+  }
 
+
+  private static EntityID getAgentID(CommunicationMessage message) {
+    if (message instanceof MessageCivilian) {
+      return ((MessageCivilian) message).getAgentID();
+    }
+    if (message instanceof MessageAmbulanceTeam) {
+      return ((MessageAmbulanceTeam) message).getAgentID();
+    }
+    if (message instanceof MessageFireBrigade) {
+      return ((MessageFireBrigade) message).getAgentID();
     }
-    return clusterTargets;
+    return ((MessagePoliceForce) message).getAgentID();
   }
 
 
@@ -27,6 +27,7 @@ import rescuecore2.standard.entities.Building;
 import rescuecore2.standard.entities.StandardEntity;
 import rescuecore2.standard.entities.StandardEntityURN;
 import rescuecore2.worldmodel.EntityID;
+import sample_team.module.util.ModuleLatency;
 
 public class SampleSearch extends Search {
 
@@ -36,10 +37,12 @@ public class SampleSearch extends Search {
   private EntityID result;
   private Collection<EntityID> unsearchedBuildingIDs;
   private Logger logger;
+  private ModuleLatency latency;
 
   public SampleSearch(AgentInfo ai, WorldInfo wi, ScenarioInfo si, ModuleManager moduleManager, DevelopData developData) {
     super(ai, wi, si, moduleManager, developData);
     logger = DefaultLogger.getLogger(agentInfo.me());
+    this.latency = ModuleLatency.of(ai, si, developData, "SampleSearch");
     this.unsearchedBuildingIDs = new HashSet<>();
 
     StandardEntityURN agentURN = ai.me().getStandardURN();
@@ -71,6 +74,7 @@ public class SampleSearch extends Search {
 
   @Override
   public Search updateInfo(MessageManager messageManager) {
+    long start = this.latency.start();
     logger.debug("Time:" + agentInfo.getTime());
     super.updateInfo(messageManager);
 
@@ -81,28 +85,34 @@ public class SampleSearch extends Search {
       this.unsearchedBuildingIDs
           .removeAll(this.worldInfo.getChanged().getChangedEntities());
     }
+    this.latency.stopUpdateInfo(start);
     return this;
   }
 
 
   @Override
   public Search calc() {
-    this.result = null;
-    if (unsearchedBuildingIDs.isEmpty())
+    long start = this.latency.start();
+    try {
+      this.result = null;
+      if (unsearchedBuildingIDs.isEmpty())
+        return this;
+
+      logger.debug("unsearchedBuildingIDs: " + unsearchedBuildingIDs);
+      this.pathPlanning.setFrom(this.agentInfo.getPosition());
+      this.pathPlanning.setDestination(this.unsearchedBuildingIDs);
+      List<EntityID> path = this.pathPlanning.calc().getResult();
+      logger.debug("best path is: " + path);
+      if (path != null && path.size() > 2) {
+        this.result = path.get(path.size() - 3);
+      } else if (path != null && path.size() > 0) {
+        this.result = path.get(path.size() - 1);
+      }
+      logger.debug("chose: " + result);
       return this;
-
-    logger.debug("unsearchedBuildingIDs: " + unsearchedBuildingIDs);
-    this.pathPlanning.setFrom(this.agentInfo.getPosition());
-    this.pathPlanning.setDestination(this.unsearchedBuildingIDs);
-    List<EntityID> path = this.pathPlanning.calc().getResult();
-    logger.debug("best path is: " + path);
-    if (path != null && path.size() > 2) {
-      this.result = path.get(path.size() - 3);
-    } else if (path != null && path.size() > 0) {
-      this.result = path.get(path.size() - 1);
+    } finally {
+      this.latency.stopCalc(start);
     }
-    logger.debug("chose: " + result);
-    return this;
   }
 
 
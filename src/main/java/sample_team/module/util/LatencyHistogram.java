@@ -0,0 +1,107 @@
+package sample_team.module.util;
+
+/**
+ * Fixed-size histogram of latencies in nanoseconds, bucketed the way
+ * HdrHistogram does it.
+ * <p>
+ * Values below {@code 2 * SUB_BUCKETS} get a bucket of their own; above that
+ * every power of two is split into {@code SUB_BUCKETS} linear buckets, so a
+ * reported value is never more than {@code 1 / SUB_BUCKETS} (about 3%) above
+ * the recorded one. Recording is an array increment without allocation.
+ * <p>
+ * A histogram has a single writer; readers on other threads may see a
+ * recording that is still in progress, which only shifts one count.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // 2^42 ns is more than an hour; longer values are clamped
+  private static final int MAX_VALUE_BITS = 42;
+  private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+  private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private long totalCount;
+  private long totalValue;
+  private long maxValue;
+
+  public void record(long nanos) {
+    long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+    this.counts[bucketIndex(value)]++;
+    this.totalCount++;
+    this.totalValue += value;
+    if (value > this.maxValue) {
+      this.maxValue = value;
+    }
+  }
+
+
+  /**
+   * Adds all recordings of {@code other} to this histogram.
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      this.counts[i] += other.counts[i];
+    }
+    this.totalCount += other.totalCount;
+    this.totalValue += other.totalValue;
+    this.maxValue = Math.max(this.maxValue, other.maxValue);
+  }
+
+
+  public long getTotalCount() {
+    return this.totalCount;
+  }
+
+
+  public long getMaxValue() {
+    return this.maxValue;
+  }
+
+
+  public double getMean() {
+    return this.totalCount == 0 ? 0.0D
+        : (double) this.totalValue / this.totalCount;
+  }
+
+
+  /**
+   * Returns the smallest bucket upper bound that covers {@code percentile}
+   * percent of the recordings, never more than the largest recorded value.
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (this.totalCount == 0) {
+      return 0L;
+    }
+    double p = Math.min(Math.max(percentile, 0.0D), 100.0D);
+    long target = Math.max(1L, (long) Math.ceil(p / 100.0D * this.totalCount));
+    long seen = 0L;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += this.counts[i];
+      if (seen >= target) {
+        return Math.min(highestEquivalentValue(i), this.maxValue);
+      }
+    }
+    return this.maxValue;
+  }
+
+
+  static int bucketIndex(long value) {
+    if (value < 2 * SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return shift * SUB_BUCKETS + (int) (value >>> shift);
+  }
+
+
+  static long highestEquivalentValue(int index) {
+    if (index < 2 * SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+    return ((mantissa + 1) << shift) - 1;
+  }
+}
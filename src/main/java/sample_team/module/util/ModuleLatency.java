@@ -0,0 +1,158 @@
+package sample_team.module.util;
+
+import adf.core.agent.develop.DevelopData;
+import adf.core.agent.info.AgentInfo;
+import adf.core.agent.info.ScenarioInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records how long {@code updateInfo} and {@code calc} of one module of one
+ * agent take, so the modules that use up the think time of a tick can be
+ * found. The time includes the sub modules the module updates.
+ * <p>
+ * Disabled by default; set {@code ModuleLatency.enabled} in the develop data
+ * to turn it on. Each module prints its percentiles after its {@code calc}
+ * of the last kernel timestep, and a summary per module over all agents of
+ * the JVM is printed when the JVM exits.
+ *
+ * <pre>
+ * long start = this.latency.start();
+ * ...
+ * this.latency.stopCalc(start);
+ * </pre>
+ */
+public final class ModuleLatency {
+
+  public static final String KEY_ENABLED = "ModuleLatency.enabled";
+
+  private static final ModuleLatency DISABLED = new ModuleLatency(null, null,
+      null, null);
+  private static final Map<String, ModuleLatency> RECORDERS = new ConcurrentHashMap<>();
+  private static final double[] PERCENTILES = { 50.0D, 90.0D, 99.0D, 99.9D };
+  private static final AtomicBoolean HOOK_ADDED = new AtomicBoolean();
+
+  private final String module;
+  private final String agent;
+  private final AgentInfo agentInfo;
+  private final ScenarioInfo scenarioInfo;
+  private final LatencyHistogram updateInfo = new LatencyHistogram();
+  private final LatencyHistogram calc = new LatencyHistogram();
+  private boolean printed;
+
+  private ModuleLatency(String module, String agent, AgentInfo agentInfo,
+      ScenarioInfo scenarioInfo) {
+    this.module = module;
+    this.agent = agent;
+    this.agentInfo = agentInfo;
+    this.scenarioInfo = scenarioInfo;
+  }
+
+
+  /**
+   * Returns the recorder of {@code module} for the agent of
+   * {@code agentInfo}, or a recorder that does nothing when the develop data
+   * does not enable it.
+   */
+  public static ModuleLatency of(AgentInfo agentInfo,
+      ScenarioInfo scenarioInfo, DevelopData developData, String module) {
+    if (!developData.getBoolean(KEY_ENABLED, false)) {
+      return DISABLED;
+    }
+    if (HOOK_ADDED.compareAndSet(false, true)) {
+      Runtime.getRuntime().addShutdownHook(
+          new Thread(ModuleLatency::printSummary, "ModuleLatency-summary"));
+    }
+    String agent = agentInfo.me().getStandardURN() + "("
+        + agentInfo.getID() + ")";
+    return RECORDERS.computeIfAbsent(module + "@" + agent,
+        key -> new ModuleLatency(module, agent, agentInfo, scenarioInfo));
+  }
+
+
+  public boolean isEnabled() {
+    return this != DISABLED;
+  }
+
+
+  /**
+   * @return the start time to pass to one of the {@code stop} methods
+   */
+  public long start() {
+    return this == DISABLED ? 0L : System.nanoTime();
+  }
+
+
+  public void stopUpdateInfo(long start) {
+    if (this != DISABLED) {
+      this.updateInfo.record(System.nanoTime() - start);
+    }
+  }
+
+
+  public void stopCalc(long start) {
+    if (this == DISABLED) {
+      return;
+    }
+    this.calc.record(System.nanoTime() - start);
+    if (!this.printed && this.agentInfo.getTime() >= this.scenarioInfo
+        .getKernelTimesteps()) {
+      this.printed = true;
+      System.out.println(format(this.module + ".updateInfo " + this.agent,
+          this.updateInfo));
+      System.out.println(
+          format(this.module + ".calc " + this.agent, this.calc));
+    }
+  }
+
+
+  public LatencyHistogram getUpdateInfo() {
+    return this.updateInfo;
+  }
+
+
+  public LatencyHistogram getCalc() {
+    return this.calc;
+  }
+
+
+  private static void printSummary() {
+    Map<String, LatencyHistogram> merged = new TreeMap<>();
+    for (ModuleLatency latency : RECORDERS.values()) {
+      merged.computeIfAbsent(latency.module + ".updateInfo",
+          key -> new LatencyHistogram()).add(latency.updateInfo);
+      merged.computeIfAbsent(latency.module + ".calc",
+          key -> new LatencyHistogram()).add(latency.calc);
+    }
+    if (merged.isEmpty()) {
+      return;
+    }
+    List<String> lines = new ArrayList<>();
+    lines.add("=== Module latency (all agents) ===");
+    for (Map.Entry<String, LatencyHistogram> entry : merged.entrySet()) {
+      lines.add(format(entry.getKey(), entry.getValue()));
+    }
+    System.out.println(String.join(System.lineSeparator(), lines));
+  }
+
+
+  static String format(String name, LatencyHistogram histogram) {
+    StringBuilder line = new StringBuilder(name);
+    line.append(": n=").append(histogram.getTotalCount());
+    line.append(String.format(Locale.ROOT, " mean=%.3fms",
+        histogram.getMean() / 1e6));
+    for (double p : PERCENTILES) {
+      line.append(String.format(Locale.ROOT, " p%s=%.3fms",
+          p == Math.rint(p) ? String.valueOf((int) p) : String.valueOf(p),
+          histogram.getValueAtPercentile(p) / 1e6));
+    }
+    line.append(String.format(Locale.ROOT, " max=%.3fms",
+        histogram.getMaxValue() / 1e6));
+    return line.toString();
+  }
+}
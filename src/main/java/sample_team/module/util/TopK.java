@@ -0,0 +1,131 @@
+package sample_team.module.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Picks the candidates with the smallest keys without sorting the whole
+ * list.
+ * <p>
+ * The key of every candidate is computed exactly once. Candidates with equal
+ * keys keep their iteration order, so the result is the prefix a stable sort
+ * by key would produce. Orderings with several criteria are expressed as one
+ * key, for example {@code (lastGroup ? 1L << 32 : 0L) + distance}.
+ */
+public final class TopK {
+
+  private TopK() {
+  }
+
+
+  /**
+   * @return the candidate with the smallest key, or {@code null} if there is
+   *         none
+   */
+  public static <T> T min(Iterable<? extends T> candidates,
+      ToLongFunction<? super T> key) {
+    T best = null;
+    long bestKey = Long.MAX_VALUE;
+    for (T candidate : candidates) {
+      long k = key.applyAsLong(candidate);
+      if (best == null || k < bestKey) {
+        best = candidate;
+        bestKey = k;
+      }
+    }
+    return best;
+  }
+
+
+  /**
+   * @return the (at most) {@code k} candidates with the smallest keys, in
+   *         ascending key order
+   */
+  public static <T> List<T> smallest(Collection<? extends T> candidates, int k,
+      ToLongFunction<? super T> key) {
+    int n = candidates.size();
+    if (k <= 0 || n == 0) {
+      return Collections.emptyList();
+    }
+    Object[] items = new Object[n];
+    long[] keys = new long[n];
+    int i = 0;
+    for (T candidate : candidates) {
+      items[i] = candidate;
+      keys[i++] = key.applyAsLong(candidate);
+    }
+
+    // max-heap of candidate indices: the worst of the current best k on top
+    int size = Math.min(k, n);
+    int[] heap = new int[size];
+    int count = 0;
+    for (i = 0; i < n; i++) {
+      if (count < size) {
+        heap[count] = i;
+        siftUp(heap, count++, keys);
+      } else if (less(i, heap[0], keys)) {
+        heap[0] = i;
+        siftDown(heap, count, keys);
+      }
+    }
+
+    // pop the heap from the back, which leaves the indices in ascending order
+    int[] order = new int[count];
+    for (int last = count - 1; last >= 0; last--) {
+      order[last] = heap[0];
+      heap[0] = heap[last];
+      siftDown(heap, last, keys);
+    }
+    List<T> result = new ArrayList<>(count);
+    for (int index : order) {
+      @SuppressWarnings("unchecked")
+      T item = (T) items[index];
+      result.add(item);
+    }
+    return result;
+  }
+
+
+  private static boolean less(int a, int b, long[] keys) {
+    return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+  }
+
+
+  private static void siftUp(int[] heap, int i, long[] keys) {
+    int item = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!less(heap[parent], item, keys)) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = item;
+  }
+
+
+  private static void siftDown(int[] heap, int size, long[] keys) {
+    if (size == 0) {
+      return;
+    }
+    int item = heap[0];
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && less(heap[child], heap[child + 1], keys)) {
+        child++;
+      }
+      if (!less(item, heap[child], keys)) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = item;
+  }
+}
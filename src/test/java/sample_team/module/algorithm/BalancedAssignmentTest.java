@@ -0,0 +1,153 @@
+package sample_team.module.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BalancedAssignmentTest {
+
+  @Test
+  void matchesBruteForce() {
+    Random random = new Random(41L);
+    for (int round = 0; round < 3000; round++) {
+      int n = 1 + random.nextInt(8);
+      int k = 1 + random.nextInt(4);
+      double[][] cost = new double[n][k];
+      for (int a = 0; a < n; a++) {
+        for (int c = 0; c < k; c++) {
+          // small integer costs give many ties
+          cost[a][c] = random.nextInt(round % 2 == 0 ? 5 : 100000);
+        }
+      }
+      this.assertOptimal(cost, k);
+    }
+  }
+
+
+  @Test
+  void matchesBruteForceWithUnreachablePairs() {
+    Random random = new Random(42L);
+    for (int round = 0; round < 3000; round++) {
+      int n = 1 + random.nextInt(8);
+      int k = 1 + random.nextInt(4);
+      double[][] cost = new double[n][k];
+      for (int a = 0; a < n; a++) {
+        for (int c = 0; c < k; c++) {
+          // zero or the largest cost next to unreachable pairs
+          int r = random.nextInt(3);
+          cost[a][c] = r == 0 ? Double.MAX_VALUE
+              : r == 1 ? 0.0D
+              : round % 2 == 0 ? 1000.0D : random.nextInt(1000);
+        }
+      }
+      this.assertOptimal(cost, k);
+    }
+  }
+
+
+  @Test
+  void avoidsUnreachablePairsAtAnyCost() {
+    // three reachable pairs of the largest cost beat one unreachable pair
+    double m = Double.MAX_VALUE;
+    double[][] cost = {
+        {1000.0D, 0.0D, m},
+        {m, m, 1000.0D},
+        {m, 1000.0D, 0.0D}
+    };
+    assertArrayEquals(new int[] {0, 2, 1}, BalancedAssignment.solve(cost, 3));
+  }
+
+
+  @Test
+  void allUnreachable() {
+    double[][] cost = new double[5][2];
+    for (double[] row : cost) {
+      Arrays.fill(row, Double.MAX_VALUE);
+    }
+    this.assertOptimal(cost, 2);
+  }
+
+
+  @Test
+  void emptyInput() {
+    assertArrayEquals(new int[0], BalancedAssignment.solve(new double[0][3],
+        3));
+    assertArrayEquals(new int[] {-1, -1},
+        BalancedAssignment.solve(new double[2][0], 0));
+  }
+
+
+  private void assertOptimal(double[][] cost, int k) {
+    int n = cost.length;
+    int[] clusters = BalancedAssignment.solve(cost, k);
+    assertEquals(n, clusters.length);
+    int[] sizes = new int[k];
+    for (int cluster : clusters) {
+      assertTrue(cluster >= 0 && cluster < k, "cluster " + cluster);
+      sizes[cluster]++;
+    }
+    assertTrue(isBalanced(sizes, n), "unbalanced sizes");
+
+    double[] best = {Double.MAX_VALUE, Double.MAX_VALUE};
+    this.search(cost, k, 0, new int[n], new int[k], best);
+    double[] actual = score(cost, clusters);
+    assertEquals(best[0], actual[0], "unreachable pairs");
+    assertEquals(best[1], actual[1], 1e-9, "total cost");
+  }
+
+
+  // every balanced assignment, keeping the best (unreachable pairs, cost)
+  private void search(double[][] cost, int k, int agent, int[] clusters,
+      int[] sizes, double[] best) {
+    int n = cost.length;
+    if (agent == n) {
+      if (isBalanced(sizes, n)) {
+        double[] score = score(cost, clusters);
+        if (score[0] < best[0]
+            || score[0] == best[0] && score[1] < best[1]) {
+          best[0] = score[0];
+          best[1] = score[1];
+        }
+      }
+      return;
+    }
+    for (int c = 0; c < k; c++) {
+      if (sizes[c] < (n + k - 1) / k) {
+        clusters[agent] = c;
+        sizes[c]++;
+        this.search(cost, k, agent + 1, clusters, sizes, best);
+        sizes[c]--;
+      }
+    }
+  }
+
+
+  // the number of unreachable pairs used and the cost of the others
+  private static double[] score(double[][] cost, int[] clusters) {
+    double[] score = new double[2];
+    for (int a = 0; a < cost.length; a++) {
+      double c = cost[a][clusters[a]];
+      if (c == Double.MAX_VALUE) {
+        score[0]++;
+      } else {
+        score[1] += c;
+      }
+    }
+    return score;
+  }
+
+
+  private static boolean isBalanced(int[] sizes, int n) {
+    int k = sizes.length;
+    for (int size : sizes) {
+      if (size != n / k && size != n / k + 1) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,138 @@
+package sample_team.module.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import rescuecore2.worldmodel.EntityID;
+
+class ContractionHierarchyTest {
+
+  @Test
+  void matchesDijkstraOnLattice() {
+    this.assertMatchesDijkstra(TestGraphs.lattice(15, 12, 0.15D, 1L), 1L);
+  }
+
+
+  @Test
+  void matchesDijkstraOnRandomGraph() {
+    this.assertMatchesDijkstra(TestGraphs.random(300, 1, 2, 2L), 2L);
+  }
+
+
+  @Test
+  void matchesDijkstraOnDisconnectedGraph() {
+    this.assertMatchesDijkstra(TestGraphs.random(240, 3, 1, 3L), 3L);
+  }
+
+
+  @Test
+  void sourceIsGoal() {
+    AreaGraph graph = TestGraphs.lattice(6, 6, 0.0D, 4L);
+    ContractionHierarchySearch search = new ContractionHierarchySearch(
+        ContractionHierarchy.build(graph));
+    for (int v = 0; v < graph.size(); v++) {
+      assertEquals(v, search.search(v, new int[] {v}, 1));
+      assertEquals(0.0D, search.getDistance());
+      assertEquals(List.of(graph.getID(v)), search.getPath());
+      // the source stays the answer among farther goals
+      int other = (v + graph.size() / 2) % graph.size();
+      assertEquals(v, search.search(v, new int[] {other, v}, 2));
+      assertEquals(0.0D, search.getDistance());
+    }
+  }
+
+
+  @Test
+  void detectsPenalisedNodesOnUnpackedPath() {
+    AreaGraph graph = TestGraphs.random(200, 2, 2, 6L);
+    ContractionHierarchySearch search = new ContractionHierarchySearch(
+        ContractionHierarchy.build(graph));
+    Random random = new Random(6L);
+    double[] penalties = new double[graph.size()];
+    for (int v = 0; v < penalties.length; v++) {
+      penalties[v] = random.nextInt(20) == 0 ? 1.0D : 0.0D;
+    }
+    for (int query = 0; query < 2000; query++) {
+      int source = random.nextInt(graph.size());
+      search.search(source, new int[] {random.nextInt(graph.size())}, 1);
+      List<EntityID> path = search.getPath();
+      boolean expected = false;
+      for (int i = 1; path != null && i < path.size(); i++) {
+        expected |= penalties[graph.indexOf(path.get(i))] > 0.0D;
+      }
+      assertEquals(expected, search.entersPenalised(penalties));
+    }
+  }
+
+
+  @Test
+  void noGoals() {
+    AreaGraph graph = TestGraphs.lattice(4, 4, 0.0D, 5L);
+    ContractionHierarchySearch search = new ContractionHierarchySearch(
+        ContractionHierarchy.build(graph));
+    assertEquals(-1, search.search(0, new int[0], 0));
+    assertEquals(Double.MAX_VALUE, search.getDistance());
+    assertNull(search.getPath());
+  }
+
+
+  private void assertMatchesDijkstra(AreaGraph graph, long seed) {
+    ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+    ContractionHierarchySearch search = new ContractionHierarchySearch(
+        hierarchy);
+    GraphSearch dijkstra = new GraphSearch(graph);
+    Random random = new Random(seed);
+    int n = graph.size();
+    for (int source = 0; source < n; source += 7) {
+      dijkstra.dijkstra(source, null, 0);
+      // every single goal
+      for (int target = 0; target < n; target++) {
+        int goal = search.search(source, new int[] {target}, 1);
+        this.assertResult(graph, search, dijkstra, source, goal,
+            dijkstra.getDistance(target), target);
+      }
+      // nearest of several goals
+      for (int query = 0; query < 20; query++) {
+        int[] goals = new int[1 + random.nextInt(5)];
+        double expected = Double.MAX_VALUE;
+        for (int i = 0; i < goals.length; i++) {
+          goals[i] = random.nextInt(n);
+          expected = Math.min(expected, dijkstra.getDistance(goals[i]));
+        }
+        int goal = search.search(source, goals, goals.length);
+        if (goal >= 0) {
+          boolean listed = false;
+          for (int g : goals) {
+            listed |= g == goal;
+          }
+          assertTrue(listed, "goal " + goal + " was not asked for");
+        }
+        this.assertResult(graph, search, dijkstra, source, goal, expected,
+            goal);
+      }
+    }
+  }
+
+
+  private void assertResult(AreaGraph graph, ContractionHierarchySearch search,
+      GraphSearch dijkstra, int source, int goal, double expected,
+      int target) {
+    if (expected == Double.MAX_VALUE) {
+      assertEquals(-1, goal, "unreachable goal found from " + source);
+      assertEquals(Double.MAX_VALUE, search.getDistance());
+      assertNull(search.getPath());
+      return;
+    }
+    assertEquals(target, goal);
+    assertEquals(expected, search.getDistance(), 1e-6 * expected,
+        "distance from " + source + " to " + goal);
+    assertEquals(expected, dijkstra.getDistance(goal), 1e-6 * expected);
+    List<EntityID> path = search.getPath();
+    TestGraphs.assertPath(graph, path, source, goal, search.getDistance(),
+        null);
+  }
+}
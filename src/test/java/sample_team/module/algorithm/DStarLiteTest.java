@@ -0,0 +1,115 @@
+package sample_team.module.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import rescuecore2.worldmodel.EntityID;
+
+class DStarLiteTest {
+
+  @Test
+  void followsChangesOnLattice() {
+    this.assertFollowsChanges(TestGraphs.lattice(14, 14, 0.1D, 11L), 11L);
+  }
+
+
+  @Test
+  void followsChangesOnRandomGraph() {
+    this.assertFollowsChanges(TestGraphs.random(250, 1, 2, 12L), 12L);
+  }
+
+
+  @Test
+  void followsChangesOnDisconnectedGraph() {
+    this.assertFollowsChanges(TestGraphs.random(200, 2, 1, 13L), 13L);
+  }
+
+
+  @Test
+  void startOnGoal() {
+    AreaGraph graph = TestGraphs.lattice(5, 5, 0.0D, 14L);
+    DStarLite dstar = new DStarLite(graph);
+    BitSet goals = new BitSet();
+    goals.set(12);
+    dstar.setGoals(goals);
+    dstar.setStart(12);
+    assertEquals(0.0D, dstar.compute());
+    assertEquals(List.of(graph.getID(12)), dstar.getPath());
+  }
+
+
+  /**
+   * Runs a random sequence of start moves, goal changes and penalty changes,
+   * and compares every result with a fresh Dijkstra search.
+   */
+  private void assertFollowsChanges(AreaGraph graph, long seed) {
+    Random random = new Random(seed);
+    int n = graph.size();
+    DStarLite dstar = new DStarLite(graph);
+    GraphSearch dijkstra = new GraphSearch(graph);
+    double[] penalties = new double[n];
+    BitSet goals = new BitSet(n);
+    for (int i = 0; i < 3; i++) {
+      goals.set(random.nextInt(n));
+    }
+    dstar.setGoals((BitSet) goals.clone());
+    int start = random.nextInt(n);
+    dstar.setStart(start);
+
+    for (int step = 0; step < 300; step++) {
+      switch (random.nextInt(4)) {
+        case 0:
+          // walk to a neighbour, like an agent moving along its path
+          if (graph.getDegree(start) > 0) {
+            start = graph.getTarget(graph.getFirstEdge(start)
+                + random.nextInt(graph.getDegree(start)));
+          }
+          dstar.setStart(start);
+          break;
+        case 1:
+          start = random.nextInt(n);
+          dstar.setStart(start);
+          break;
+        case 2:
+          int goal = random.nextInt(n);
+          goals.flip(goal);
+          if (goals.isEmpty()) {
+            goals.set(goal);
+          }
+          dstar.setGoals((BitSet) goals.clone());
+          break;
+        default:
+          for (int i = 0; i < 5; i++) {
+            int node = random.nextInt(n);
+            penalties[node] = random.nextBoolean()
+                ? random.nextInt(50000)
+                : 0.0D;
+            dstar.setPenalty(node, penalties[node]);
+          }
+          break;
+      }
+      double distance = dstar.compute();
+
+      int[] goalArray = goals.stream().toArray();
+      dijkstra.setNodePenalties(penalties);
+      int nearest = dijkstra.dijkstra(start, goalArray, goalArray.length);
+      if (nearest < 0) {
+        assertEquals(Double.POSITIVE_INFINITY, distance, "step " + step);
+        assertNull(dstar.getPath());
+        continue;
+      }
+      double expected = dijkstra.getDistance(nearest);
+      assertEquals(expected, distance, 1e-6 * Math.max(1.0D, expected),
+          "step " + step);
+      List<EntityID> path = dstar.getPath();
+      int end = graph.indexOf(path.get(path.size() - 1));
+      assertTrue(goals.get(end), "path ends at " + end + ", not a goal");
+      TestGraphs.assertPath(graph, path, start, end, distance, penalties);
+    }
+  }
+}
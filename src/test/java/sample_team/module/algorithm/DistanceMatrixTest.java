@@ -0,0 +1,127 @@
+package sample_team.module.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import rescuecore2.worldmodel.EntityID;
+
+class DistanceMatrixTest {
+
+  @Test
+  void forwardMatchesDijkstra() {
+    AreaGraph graph = TestGraphs.random(200, 2, 2, 61L);
+    Random random = new Random(61L);
+    double[] penalties = penalties(random, graph.size());
+    // fewer sources than destinations: one search per source
+    List<EntityID> sources = ids(random, graph, 5);
+    List<EntityID> destinations = ids(random, graph, 40);
+    DistanceMatrix matrix = DistanceMatrix.compute(graph, sources,
+        destinations, penalties, 1);
+    assertTrue(matrix.getSearchCount() <= 5);
+    this.assertMatchesDijkstra(graph, penalties, matrix);
+  }
+
+
+  @Test
+  void reverseMatchesDijkstra() {
+    AreaGraph graph = TestGraphs.random(200, 2, 2, 62L);
+    Random random = new Random(62L);
+    double[] penalties = penalties(random, graph.size());
+    // more sources than destinations: one search per destination, with the
+    // penalties of both ends corrected
+    List<EntityID> sources = ids(random, graph, 40);
+    List<EntityID> destinations = ids(random, graph, 5);
+    DistanceMatrix matrix = DistanceMatrix.compute(graph, sources,
+        destinations, penalties, 1);
+    assertTrue(matrix.getSearchCount() <= 5);
+    this.assertMatchesDijkstra(graph, penalties, matrix);
+  }
+
+
+  @Test
+  void reverseMatchesDijkstraOnLatticeWithoutPenalties() {
+    AreaGraph graph = TestGraphs.lattice(10, 10, 0.2D, 63L);
+    Random random = new Random(63L);
+    DistanceMatrix matrix = DistanceMatrix.compute(graph,
+        ids(random, graph, 30), ids(random, graph, 3), null, 1);
+    this.assertMatchesDijkstra(graph, null, matrix);
+  }
+
+
+  @Test
+  void parallelGivesSameMatrix() {
+    AreaGraph graph = TestGraphs.lattice(20, 20, 0.1D, 64L);
+    Random random = new Random(64L);
+    double[] penalties = penalties(random, graph.size());
+    for (int[] shape : new int[][] {{60, 8}, {8, 60}}) {
+      List<EntityID> sources = ids(random, graph, shape[0]);
+      List<EntityID> destinations = ids(random, graph, shape[1]);
+      DistanceMatrix serial = DistanceMatrix.compute(graph, sources,
+          destinations, penalties, 1);
+      DistanceMatrix parallel = DistanceMatrix.compute(graph, sources,
+          destinations, penalties, 4);
+      assertEquals(serial.getSearchCount(), parallel.getSearchCount());
+      for (int s = 0; s < sources.size(); s++) {
+        for (int d = 0; d < destinations.size(); d++) {
+          assertEquals(serial.getDistance(s, d), parallel.getDistance(s, d));
+        }
+      }
+    }
+  }
+
+
+  private void assertMatchesDijkstra(AreaGraph graph, double[] penalties,
+      DistanceMatrix matrix) {
+    GraphSearch search = new GraphSearch(graph);
+    search.setNodePenalties(penalties);
+    List<EntityID> sources = matrix.getSources();
+    List<EntityID> destinations = matrix.getDestinations();
+    for (int s = 0; s < sources.size(); s++) {
+      int source = graph.indexOf(sources.get(s));
+      for (int d = 0; d < destinations.size(); d++) {
+        int destination = graph.indexOf(destinations.get(d));
+        double expected = Double.MAX_VALUE;
+        if (source >= 0 && destination >= 0) {
+          search.dijkstra(source, new int[] {destination}, 1);
+          expected = search.getDistance(destination);
+        }
+        double actual = matrix.getDistance(s, d);
+        if (expected == Double.MAX_VALUE) {
+          assertEquals(Double.MAX_VALUE, actual, sources.get(s) + " -> "
+              + destinations.get(d));
+        } else {
+          assertEquals(expected, actual, 1e-6 * Math.max(1.0D, expected),
+              sources.get(s) + " -> " + destinations.get(d));
+        }
+      }
+    }
+  }
+
+
+  private static double[] penalties(Random random, int n) {
+    double[] penalties = new double[n];
+    for (int v = 0; v < n; v++) {
+      if (random.nextInt(3) == 0) {
+        penalties[v] = random.nextInt(200000);
+      }
+    }
+    return penalties;
+  }
+
+
+  // random areas with duplicates, plus an ID that is not an area
+  private static List<EntityID> ids(Random random, AreaGraph graph,
+      int count) {
+    List<EntityID> ids = new ArrayList<>();
+    for (int i = 0; i < count - 2; i++) {
+      ids.add(graph.getID(random.nextInt(graph.size())));
+    }
+    ids.add(ids.get(0));
+    ids.add(new EntityID(1));
+    return ids;
+  }
+}
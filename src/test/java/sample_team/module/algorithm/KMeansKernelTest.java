@@ -0,0 +1,96 @@
+package sample_team.module.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class KMeansKernelTest {
+
+  @Test
+  void boundedMatchesUnboundedOnRandomPoints() {
+    Random random = new Random(31L);
+    int[] x = new int[500];
+    int[] y = new int[500];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = random.nextInt(1000000);
+      y[i] = random.nextInt(1000000);
+    }
+    this.assertSameIterations(x, y, 8, 1, 31L);
+  }
+
+
+  @Test
+  void boundedMatchesUnboundedWithTiesAndDuplicates() {
+    // a coarse lattice where many points are equally far from two centers,
+    // every point listed three times
+    Random random = new Random(32L);
+    int[] x = new int[600];
+    int[] y = new int[600];
+    for (int i = 0; i < x.length; i += 3) {
+      int px = random.nextInt(12) * 1000;
+      int py = random.nextInt(12) * 1000;
+      for (int j = i; j < i + 3; j++) {
+        x[j] = px;
+        y[j] = py;
+      }
+    }
+    this.assertSameIterations(x, y, 9, 1, 32L);
+  }
+
+
+  @Test
+  void boundedMatchesUnboundedInParallel() {
+    Random random = new Random(33L);
+    int[] x = new int[5000];
+    int[] y = new int[5000];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = random.nextInt(40) * 500;
+      y[i] = random.nextInt(40) * 500;
+    }
+    this.assertSameIterations(x, y, 12, 4, 33L);
+  }
+
+
+  @Test
+  void costAddsSquaredDistances() {
+    KMeansKernel kernel = new KMeansKernel(new int[] {0, 3, 10},
+        new int[] {0, 4, 0}, 1);
+    int[] centers = {0, 2};
+    int[] assignment = new int[3];
+    kernel.assign(centers, assignment);
+    assertArrayEquals(new int[] {0, 0, 1}, assignment);
+    assertEquals(25L, kernel.cost(centers, assignment));
+  }
+
+
+  /**
+   * Runs the plain and the bounded assignment side by side from the same
+   * seeding and requires the same assignment and centers on every iteration.
+   */
+  private void assertSameIterations(int[] x, int[] y, int k, int parallelism,
+      long seed) {
+    KMeansKernel kernel = new KMeansKernel(x, y, parallelism);
+    int[] plainCenters = kernel.seedPlusPlus(k, new Random(seed));
+    int[] boundedCenters = kernel.seedPlusPlus(k, new Random(seed));
+    assertArrayEquals(plainCenters, boundedCenters);
+    int[] plain = new int[x.length];
+    int[] bounded = new int[x.length];
+    KMeansKernel.Bounds bounds = kernel.createBounds(k);
+    for (int iteration = 0; iteration < 50; iteration++) {
+      kernel.assign(plainCenters, plain);
+      kernel.assign(boundedCenters, bounded, bounds);
+      assertArrayEquals(plain, bounded, "assignment " + iteration);
+      assertEquals(kernel.cost(plainCenters, plain),
+          kernel.cost(boundedCenters, bounded));
+      boolean plainChanged = kernel.update(plain, plainCenters);
+      boolean boundedChanged = kernel.update(bounded, boundedCenters);
+      assertArrayEquals(plainCenters, boundedCenters, "centers " + iteration);
+      assertEquals(plainChanged, boundedChanged);
+      if (!plainChanged) {
+        return;
+      }
+    }
+  }
+}
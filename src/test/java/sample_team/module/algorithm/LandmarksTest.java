@@ -0,0 +1,142 @@
+package sample_team.module.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import adf.core.agent.precompute.PrecomputeData;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import rescuecore2.worldmodel.EntityID;
+
+class LandmarksTest {
+
+  @Test
+  void boundsAreAdmissible() {
+    for (AreaGraph graph : graphs()) {
+      Landmarks landmarks = Landmarks.build(graph, 8);
+      GraphSearch search = new GraphSearch(graph);
+      Random random = new Random(21L);
+      for (int query = 0; query < 30; query++) {
+        int[] goals = randomGoals(random, graph.size());
+        Landmarks.Bound bound = landmarks.bound(goals, goals.length);
+        // the graph is symmetric, so a search from all goals gives the
+        // distance of every node to its nearest goal
+        search.dijkstra(goals, goals.length);
+        for (int v = 0; v < graph.size(); v++) {
+          if (search.isReached(v)) {
+            assertTrue(bound.estimate(v) <= search.getDistance(v),
+                "estimate " + bound.estimate(v) + " > "
+                    + search.getDistance(v) + " at " + v);
+          }
+        }
+      }
+    }
+  }
+
+
+  @Test
+  void aStarMatchesDijkstra() {
+    for (AreaGraph graph : graphs()) {
+      this.assertMatchesDijkstra(graph, null);
+    }
+  }
+
+
+  @Test
+  void aStarMatchesDijkstraWithPenalties() {
+    Random random = new Random(22L);
+    for (AreaGraph graph : graphs()) {
+      double[] penalties = new double[graph.size()];
+      for (int v = 0; v < penalties.length; v++) {
+        if (random.nextInt(4) == 0) {
+          penalties[v] = random.nextInt(100000);
+        }
+      }
+      this.assertMatchesDijkstra(graph, penalties);
+    }
+  }
+
+
+  @Test
+  void readsWrittenTables() {
+    AreaGraph graph = TestGraphs.lattice(9, 7, 0.1D, 23L);
+    Landmarks built = Landmarks.build(graph, 6);
+    PrecomputeData data = new PrecomputeData();
+    built.write(data, "test.landmarks");
+
+    Landmarks read = Landmarks.read(data, "test.landmarks", graph);
+    assertNotNull(read);
+    assertEquals(built.size(), read.size());
+    Random random = new Random(23L);
+    for (int query = 0; query < 20; query++) {
+      int[] goals = randomGoals(random, graph.size());
+      Landmarks.Bound expected = built.bound(goals, goals.length);
+      Landmarks.Bound actual = read.bound(goals, goals.length);
+      for (int v = 0; v < graph.size(); v++) {
+        assertEquals(expected.estimate(v), actual.estimate(v));
+      }
+    }
+  }
+
+
+  @Test
+  void rejectsTablesOfAnotherMap() {
+    AreaGraph graph = TestGraphs.lattice(9, 7, 0.1D, 24L);
+    // same areas and centres, different links
+    AreaGraph other = TestGraphs.lattice(9, 7, 0.2D, 24L);
+    assertTrue(graph.getFingerprint() != other.getFingerprint());
+    PrecomputeData data = new PrecomputeData();
+    Landmarks.build(graph, 4).write(data, "test.landmarks");
+
+    assertNull(Landmarks.read(data, "test.landmarks", other));
+    assertNull(Landmarks.read(new PrecomputeData(), "test.landmarks", graph));
+  }
+
+
+  private void assertMatchesDijkstra(AreaGraph graph, double[] penalties) {
+    AStarSearch astar = new AStarSearch(Landmarks.build(graph, 8));
+    astar.setNodePenalties(penalties);
+    GraphSearch dijkstra = new GraphSearch(graph);
+    dijkstra.setNodePenalties(penalties);
+    Random random = new Random(25L);
+    for (int query = 0; query < 300; query++) {
+      int source = random.nextInt(graph.size());
+      int[] goals = randomGoals(random, graph.size());
+      int expected = dijkstra.dijkstra(source, goals, goals.length);
+      int goal = astar.search(source, goals, goals.length);
+      if (expected < 0) {
+        assertEquals(-1, goal);
+        assertNull(astar.getPath(goal));
+        continue;
+      }
+      assertTrue(goal >= 0, "no goal found from " + source);
+      double distance = dijkstra.getDistance(expected);
+      assertEquals(distance, astar.getDistance(goal),
+          1e-6 * Math.max(1.0D, distance), "from " + source);
+      List<EntityID> path = astar.getPath(goal);
+      TestGraphs.assertPath(graph, path, source, goal, astar.getDistance(goal),
+          penalties);
+    }
+  }
+
+
+  private static AreaGraph[] graphs() {
+    return new AreaGraph[] {
+        TestGraphs.lattice(16, 12, 0.1D, 26L),
+        TestGraphs.random(300, 1, 2, 27L),
+        TestGraphs.random(200, 3, 1, 28L)
+    };
+  }
+
+
+  private static int[] randomGoals(Random random, int n) {
+    int[] goals = new int[1 + random.nextInt(4)];
+    for (int i = 0; i < goals.length; i++) {
+      goals[i] = random.nextInt(n);
+    }
+    return goals;
+  }
+}
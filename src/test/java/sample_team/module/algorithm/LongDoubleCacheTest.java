@@ -0,0 +1,123 @@
+package sample_team.module.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LongDoubleCacheTest {
+
+  @Test
+  void missesOnEmptyCache() {
+    LongDoubleCache cache = new LongDoubleCache(1 << 20);
+    assertTrue(Double.isNaN(cache.get(42L)));
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0L, cache.getHits());
+    assertEquals(1L, cache.getMisses());
+  }
+
+
+  @Test
+  void growsAndKeepsEntriesUpToCapacity() {
+    LongDoubleCache cache = new LongDoubleCache(1000);
+    for (int i = 0; i < 1000; i++) {
+      cache.put(LongDoubleCache.key(i, -i), i * 0.5D);
+    }
+    assertEquals(1000, cache.size());
+    assertEquals(0L, cache.getEvictions());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i * 0.5D, cache.get(LongDoubleCache.key(i, -i)));
+    }
+    assertEquals(1000L, cache.getHits());
+    assertEquals(0L, cache.getMisses());
+  }
+
+
+  @Test
+  void evictsInsideWrappedProbeChain() {
+    // capacity 4 gives a table of 8 slots; keys homed at the last slot
+    // form the chain 7, 0, 1, 2
+    LongDoubleCache cache = new LongDoubleCache(4);
+    List<Long> keys = keysWithHome(7, 7, 4);
+    for (int i = 0; i < 4; i++) {
+      cache.put(keys.get(i), i);
+    }
+    // the hand starts at slot 0; reading its entry makes the hand evict
+    // slot 1 from the middle of the chain, and the new key goes elsewhere
+    assertEquals(1.0D, cache.get(keys.get(1)));
+    keys.add(keysWithHome(4, 7, 1).get(0));
+    cache.put(keys.get(4), 4);
+
+    assertEquals(4, cache.size());
+    assertEquals(1L, cache.getEvictions());
+    assertEquals(0.0D, cache.get(keys.get(0)));
+    assertEquals(1.0D, cache.get(keys.get(1)));
+    assertTrue(Double.isNaN(cache.get(keys.get(2))));
+    assertEquals(3.0D, cache.get(keys.get(3)));
+    assertEquals(4.0D, cache.get(keys.get(4)));
+    assertEquals(5L, cache.getHits());
+    assertEquals(1L, cache.getMisses());
+  }
+
+
+  @Test
+  void survivorsResolveAfterManyEvictions() {
+    Random random = new Random(7);
+    for (int capacity : new int[] {1, 3, 8, 100}) {
+      LongDoubleCache cache = new LongDoubleCache(capacity);
+      Map<Long, Double> inserted = new HashMap<>();
+      long hits = 0;
+      long misses = 0;
+      long evictions = 0;
+      for (int round = 0; round < 2000; round++) {
+        long key = LongDoubleCache.key(random.nextInt(300),
+            random.nextInt(300));
+        double value = random.nextDouble();
+        if (Double.isNaN(cache.get(key))) {
+          misses++;
+          if (cache.size() == capacity) {
+            evictions++;
+          }
+        } else {
+          hits++;
+        }
+        cache.put(key, value);
+        inserted.put(key, value);
+        assertEquals(evictions, cache.getEvictions());
+      }
+      // every entry still in the cache must be reachable from its home slot
+      int found = 0;
+      for (Map.Entry<Long, Double> entry : inserted.entrySet()) {
+        double value = cache.get(entry.getKey());
+        if (Double.isNaN(value)) {
+          misses++;
+        } else {
+          hits++;
+          found++;
+          assertEquals(entry.getValue().doubleValue(), value);
+        }
+      }
+      assertEquals(Math.min(capacity, inserted.size()), cache.size());
+      assertEquals(cache.size(), found);
+      assertEquals(hits, cache.getHits());
+      assertEquals(misses, cache.getMisses());
+    }
+  }
+
+
+  private static List<Long> keysWithHome(int home, int mask, int count) {
+    List<Long> keys = new ArrayList<>();
+    for (long key = 0; keys.size() < count; key++) {
+      if ((LongDoubleCache.mix(key) & mask) == home) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+}
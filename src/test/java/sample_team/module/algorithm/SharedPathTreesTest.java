@@ -0,0 +1,88 @@
+package sample_team.module.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import rescuecore2.worldmodel.EntityID;
+
+class SharedPathTreesTest {
+
+  @Test
+  void reusesTreeOfSameSource() {
+    AreaGraph graph = TestGraphs.lattice(6, 6, 0.0D, 51L);
+    SharedPathTrees trees = new SharedPathTrees(graph);
+    ShortestPathTree tree = trees.from(graph.getID(0));
+    assertEquals(1, trees.getComputationCount());
+    assertSame(tree, trees.from(graph.getID(0)));
+    tree.getDistance(graph.getID(35));
+    assertSame(tree, trees.from(graph.getID(0)));
+    assertEquals(1, trees.getComputationCount());
+  }
+
+
+  @Test
+  void recomputesLeastRecentlyUsedSlot() {
+    AreaGraph graph = TestGraphs.lattice(6, 6, 0.0D, 52L);
+    SharedPathTrees trees = new SharedPathTrees(graph);
+    // fill the four slots, then use the first source again
+    for (int source = 0; source < 4; source++) {
+      trees.from(graph.getID(source));
+    }
+    trees.from(graph.getID(0));
+    assertEquals(4, trees.getComputationCount());
+
+    // a new source takes the slot of source 1, the least recently used
+    trees.from(graph.getID(4));
+    assertEquals(5, trees.getComputationCount());
+    trees.from(graph.getID(0));
+    trees.from(graph.getID(2));
+    trees.from(graph.getID(3));
+    trees.from(graph.getID(4));
+    assertEquals(5, trees.getComputationCount());
+    trees.from(graph.getID(1));
+    assertEquals(6, trees.getComputationCount());
+  }
+
+
+  @Test
+  void recomputesOnPenaltyChange() {
+    AreaGraph graph = TestGraphs.lattice(6, 6, 0.0D, 53L);
+    SharedPathTrees trees = new SharedPathTrees(graph);
+    trees.from(graph.getID(0));
+    trees.from(graph.getID(5));
+    assertEquals(2, trees.getComputationCount());
+
+    // setting a penalty to its current value changes nothing
+    trees.setPenalty(7, 0.0D);
+    trees.from(graph.getID(0));
+    assertEquals(2, trees.getComputationCount());
+
+    double[] penalties = new double[graph.size()];
+    penalties[7] = 100000.0D;
+    penalties[14] = 50000.0D;
+    trees.setPenalty(7, penalties[7]);
+    trees.setPenalty(14, penalties[14]);
+    ShortestPathTree tree = trees.from(graph.getID(0));
+    assertEquals(3, trees.getComputationCount());
+    this.assertDistances(graph, penalties, tree, 0);
+    trees.from(graph.getID(5));
+    assertEquals(4, trees.getComputationCount());
+
+    // a tree created later starts with the penalties
+    this.assertDistances(graph, penalties, trees.from(graph.getID(20)), 20);
+    assertEquals(5, trees.getComputationCount());
+  }
+
+
+  private void assertDistances(AreaGraph graph, double[] penalties,
+      ShortestPathTree tree, int source) {
+    GraphSearch search = new GraphSearch(graph);
+    search.setNodePenalties(penalties);
+    search.dijkstra(source, null, 0);
+    for (int v = 0; v < graph.size(); v++) {
+      EntityID id = graph.getID(v);
+      assertEquals(search.getDistance(v), tree.getDistance(id), 1e-6);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package sample_team.module.algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Area graphs for the search tests, built without a world model.
+ */
+final class TestGraphs {
+
+  private TestGraphs() {
+  }
+
+
+  /**
+   * A {@code width} x {@code height} lattice with jittered centres, so that
+   * shortest paths are mostly unique, and a fraction {@code drop} of the
+   * links removed.
+   */
+  static AreaGraph lattice(int width, int height, double drop, long seed) {
+    Random random = new Random(seed);
+    int n = width * height;
+    int[] x = new int[n];
+    int[] y = new int[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = (i % width) * 10000 + random.nextInt(3000);
+      y[i] = (i / width) * 10000 + random.nextInt(3000);
+    }
+    int[] from = new int[2 * n];
+    int[] to = new int[2 * n];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      if (i % width + 1 < width && random.nextDouble() >= drop) {
+        from[count] = i;
+        to[count++] = i + 1;
+      }
+      if (i + width < n && random.nextDouble() >= drop) {
+        from[count] = i;
+        to[count++] = i + width;
+      }
+    }
+    return AreaGraph.build(ids(n), x, y, Arrays.copyOf(from, count),
+        Arrays.copyOf(to, count));
+  }
+
+
+  /**
+   * {@code n} random centres in {@code components} separate clusters; every
+   * node is linked to a random earlier node of its cluster and to
+   * {@code extra} random nodes of its cluster.
+   */
+  static AreaGraph random(int n, int components, int extra, long seed) {
+    Random random = new Random(seed);
+    int[] x = new int[n];
+    int[] y = new int[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = (i % components) * 1000000 + random.nextInt(100000);
+      y[i] = random.nextInt(100000);
+    }
+    int[] from = new int[n * (1 + extra)];
+    int[] to = new int[n * (1 + extra)];
+    int count = 0;
+    for (int i = components; i < n; i++) {
+      int component = i % components;
+      from[count] = i;
+      to[count++] = component + components * random.nextInt(i / components);
+      for (int j = 0; j < extra; j++) {
+        from[count] = i;
+        to[count++] = component + components * random.nextInt(
+            (n - component + components - 1) / components);
+      }
+    }
+    return AreaGraph.build(ids(n), x, y, Arrays.copyOf(from, count),
+        Arrays.copyOf(to, count));
+  }
+
+
+  private static EntityID[] ids(int n) {
+    EntityID[] ids = new EntityID[n];
+    for (int i = 0; i < n; i++) {
+      ids[i] = new EntityID(1000 + 7 * i);
+    }
+    return ids;
+  }
+
+
+  /**
+   * Asserts that {@code path} runs over links of {@code graph} from
+   * {@code source} to {@code target} and costs {@code distance} plus the
+   * penalties of the nodes it enters.
+   */
+  static void assertPath(AreaGraph graph, List<EntityID> path, int source,
+      int target, double distance, double[] penalties) {
+    assertEquals(source, graph.indexOf(path.get(0)));
+    assertEquals(target, graph.indexOf(path.get(path.size() - 1)));
+    double cost = 0.0D;
+    for (int i = 1; i < path.size(); i++) {
+      int a = graph.indexOf(path.get(i - 1));
+      int b = graph.indexOf(path.get(i));
+      int edge = findEdge(graph, a, b);
+      assertTrue(edge >= 0, "no link " + a + "-" + b);
+      cost += graph.getWeight(edge)
+          + (penalties != null ? penalties[b] : 0.0D);
+    }
+    assertEquals(distance, cost, 1e-6 * Math.max(1.0D, distance));
+  }
+
+
+  private static int findEdge(AreaGraph graph, int a, int b) {
+    int first = graph.getFirstEdge(a);
+    for (int e = first; e < first + graph.getDegree(a); e++) {
+      if (graph.getTarget(e) == b) {
+        return e;
+      }
+    }
+    return -1;
+  }
+}